@@ -26,4 +26,12 @@ public class DataGetter {
     public void get(int id) {
         System.out.println(this.dataService.getData(id));
     }
+
+    /**
+     * @param ids
+     * The ids to retrieve, e.g. <code>1-100,205</code>.
+     */
+    public void get(String ids) {
+        IdRanges.retrieve(this.dataService, ids, System.out::println);
+    }
 }
\ No newline at end of file
@@ -4,7 +4,10 @@ import java.util.List;
 import java.util.Map;
 
 import org.fipro.ds.data.DataService;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 
 @Component(
@@ -18,7 +21,9 @@ public class DataRetriever {
 	@Reference(
 		bind = "addDataService",
 		target="(fipro.connectivity=online)")
-    private volatile List<DataService> dataServices;
+    private volatile List<Map.Entry<Map<String, Object>, DataService>> dataServices;
+
+    private FanOut fanOut;
 
     void addDataService(Map<String, Object> properties) {
         System.out.println("Added " + properties.get("component.name"));
@@ -32,9 +37,30 @@ public class DataRetriever {
         System.out.println("Removed " + properties.get("component.name"));
     }
 
+    @Activate
+    void activate(FanOut.FanOutConfig config) {
+        this.fanOut = new FanOut("fipro-retrieve", config);
+    }
+
+    @Modified
+    void modified(FanOut.FanOutConfig config) {
+        this.fanOut.modified(config);
+    }
+
+    @Deactivate
+    void deactivate() {
+        this.fanOut.shutdown();
+    }
+
     public void retrieve(int id) {
-        for (DataService service : this.dataServices) {
-            System.out.println(service.getData(id));
-        }
+        this.fanOut.retrieve(DataServices.withoutCached(this.dataServices), id);
+    }
+
+    /**
+     * @param ids
+     * The ids to retrieve, e.g. <code>1-100,205</code>.
+     */
+    public void retrieve(String ids) {
+        this.fanOut.retrieve(DataServices.withoutCached(this.dataServices), ids);
     }
 }
\ No newline at end of file
@@ -1,9 +1,13 @@
 package org.fipro.ds.configurator;
 
 import java.util.List;
+import java.util.Map;
 
 import org.fipro.ds.data.DataService;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.propertytypes.SatisfyingConditionTarget;
 
@@ -17,11 +21,34 @@ import org.osgi.service.component.propertytypes.SatisfyingConditionTarget;
 public class DataRetrieverOnOff {
 	
 	@Reference
-    private volatile List<DataService> dataServices;
+    private volatile List<Map.Entry<Map<String, Object>, DataService>> dataServices;
+
+    private FanOut fanOut;
+
+    @Activate
+    void activate(FanOut.FanOutConfig config) {
+        this.fanOut = new FanOut("fipro-onoff", config);
+    }
+
+    @Modified
+    void modified(FanOut.FanOutConfig config) {
+        this.fanOut.modified(config);
+    }
+
+    @Deactivate
+    void deactivate() {
+        this.fanOut.shutdown();
+    }
 
     public void onoff(int id) {
-        for (DataService service : this.dataServices) {
-            System.out.println(service.getData(id));
-        }
+        this.fanOut.retrieve(DataServices.withoutCached(this.dataServices), id);
+    }
+
+    /**
+     * @param ids
+     * The ids to retrieve, e.g. <code>1-100,205</code>.
+     */
+    public void onoff(String ids) {
+        this.fanOut.retrieve(DataServices.withoutCached(this.dataServices), ids);
     }
 }
\ No newline at end of file
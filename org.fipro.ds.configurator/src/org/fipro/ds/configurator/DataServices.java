@@ -0,0 +1,43 @@
+package org.fipro.ds.configurator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.fipro.ds.data.DataService;
+
+final class DataServices {
+
+	private DataServices() {
+	}
+
+	/**
+	 * A caching {@link DataService} is registered in addition to the service it
+	 * wraps and references it via the <code>fipro.data.cache.delegate</code>
+	 * property. Consumers of all bound services skip the wrapped services, so
+	 * every backend is queried once and through its cache.
+	 * 
+	 * @param services
+	 * The bound services with their properties.
+	 * @return The services without the ones that are wrapped by a bound cache.
+	 */
+	static List<Map.Entry<Map<String, Object>, DataService>> withoutCached(
+			List<Map.Entry<Map<String, Object>, DataService>> services) {
+		Set<Object> cached = new HashSet<>();
+		for (Map.Entry<Map<String, Object>, DataService> entry : services) {
+			Object delegate = entry.getKey().get("fipro.data.cache.delegate");
+			if (delegate != null) {
+				cached.add(delegate);
+			}
+		}
+		List<Map.Entry<Map<String, Object>, DataService>> result = new ArrayList<>(services.size());
+		for (Map.Entry<Map<String, Object>, DataService> entry : services) {
+			if (!cached.contains(entry.getKey().get("service.id"))) {
+				result.add(entry);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,228 @@
+package org.fipro.ds.configurator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiFunction;
+
+import org.fipro.ds.data.DataService;
+
+/**
+ * Requests all services concurrently and waits for their results up to a
+ * deadline, so the response time is bounded by the slowest service instead of
+ * the sum of all. The values of every service are collected while they arrive.
+ * At the deadline the values that arrived are printed in the order of the
+ * services, followed by the response time of every service, and the work of
+ * the services that did not finish is interrupted.
+ * <p>
+ * The blocking calls run on a bounded pool, requests that do not fit into the
+ * pool and its queue fail instead of piling up threads.
+ */
+final class FanOut {
+
+	@interface FanOutConfig {
+		/**
+		 * The milliseconds to wait for the services.
+		 */
+		long timeoutMillis() default 1000;
+
+		/**
+		 * The maximum number of threads for blocking service calls.
+		 */
+		int threads() default 8;
+
+		/**
+		 * The maximum number of service calls that wait for a thread.
+		 */
+		int queueSize() default 64;
+	}
+
+	private final ThreadPoolExecutor executor;
+	private volatile long timeoutMillis;
+
+	FanOut(String threadPrefix, FanOutConfig config) {
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(
+				config.threads(), config.threads(),
+				30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(config.queueSize()),
+				r -> {
+					Thread thread = new Thread(r, threadPrefix + "-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		this.executor.allowCoreThreadTimeOut(true);
+		this.timeoutMillis = config.timeoutMillis();
+	}
+
+	void modified(FanOutConfig config) {
+		if (config.threads() > this.executor.getMaximumPoolSize()) {
+			this.executor.setMaximumPoolSize(config.threads());
+			this.executor.setCorePoolSize(config.threads());
+		} else {
+			this.executor.setCorePoolSize(config.threads());
+			this.executor.setMaximumPoolSize(config.threads());
+		}
+		this.timeoutMillis = config.timeoutMillis();
+	}
+
+	void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * Retrieves the value for the given id from all services.
+	 */
+	void retrieve(List<Map.Entry<Map<String, Object>, DataService>> services, int id) {
+		retrieve(services, (service, request) -> service.getDataAsync(id, request).thenAccept(request::add));
+	}
+
+	/**
+	 * Retrieves the values for the given ids from all services.
+	 *
+	 * @param ids
+	 * The ids to retrieve, e.g. <code>1-100,205</code>.
+	 */
+	void retrieve(List<Map.Entry<Map<String, Object>, DataService>> services, String ids) {
+		retrieve(services, (service, request) ->
+			CompletableFuture.runAsync(() -> IdRanges.retrieve(service, ids, request::add), request));
+	}
+
+	private void retrieve(
+			List<Map.Entry<Map<String, Object>, DataService>> services,
+			BiFunction<DataService, Request, CompletionStage<?>> call) {
+
+		long timeoutMillis = this.timeoutMillis;
+		long start = System.nanoTime();
+		AtomicLongArray elapsed = new AtomicLongArray(services.size());
+		List<Request> requests = new ArrayList<>(services.size());
+		List<CompletableFuture<?>> futures = new ArrayList<>(services.size());
+		for (int i = 0; i < services.size(); i++) {
+			int index = i;
+			Request request = new Request(this.executor);
+			CompletableFuture<?> future;
+			try {
+				future = call.apply(services.get(i).getValue(), request).toCompletableFuture();
+			} catch (RuntimeException e) {
+				future = CompletableFuture.failedFuture(e);
+			}
+			requests.add(request);
+			futures.add(future.whenComplete((result, error) -> elapsed.set(index, System.nanoTime() - start)));
+		}
+
+		try {
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException | ExecutionException e) {
+			// reported per service below
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		int completed = 0;
+		String[] status = new String[futures.size()];
+		for (int i = 0; i < futures.size(); i++) {
+			CompletableFuture<?> future = futures.get(i);
+			Request request = requests.get(i);
+			boolean late = !future.isDone();
+			if (late) {
+				// interrupts the late work, values that arrive from now on are dropped
+				request.cancel();
+			}
+			List<String> values = request.values();
+			values.forEach(System.out::println);
+			if (late) {
+				status[i] = values.isEmpty()
+						? "no result within " + timeoutMillis + " ms"
+						: values.size() + " values within " + timeoutMillis + " ms, the rest was cancelled";
+			} else if (future.isCompletedExceptionally()) {
+				status[i] = "failed after " + millis(elapsed.get(i)) + " ms: " + failure(future);
+			} else {
+				status[i] = millis(elapsed.get(i)) + " ms";
+				completed++;
+			}
+		}
+
+		for (int i = 0; i < status.length; i++) {
+			System.out.printf("  %-50s %s%n", name(services.get(i).getKey()), status[i]);
+		}
+		System.out.println("  " + completed + " of " + status.length + " services responded in "
+				+ millis(System.nanoTime() - start) + " ms");
+	}
+
+	/**
+	 * The values and the pool tasks of the request to one service.
+	 */
+	private static final class Request implements Executor {
+
+		private final ThreadPoolExecutor executor;
+		private final Queue<String> values = new ConcurrentLinkedQueue<>();
+		private final Queue<Future<?>> tasks = new ConcurrentLinkedQueue<>();
+		private volatile boolean cancelled;
+
+		Request(ThreadPoolExecutor executor) {
+			this.executor = executor;
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			this.tasks.add(this.executor.submit(command));
+		}
+
+		void add(String value) {
+			if (this.cancelled || Thread.currentThread().isInterrupted()) {
+				// stops a lazily retrieved range after the deadline
+				throw new CancellationException();
+			}
+			this.values.add(value);
+		}
+
+		void cancel() {
+			this.cancelled = true;
+			this.tasks.forEach(task -> task.cancel(true));
+		}
+
+		List<String> values() {
+			return new ArrayList<>(this.values);
+		}
+	}
+
+	private static String name(Map<String, Object> properties) {
+		Object name = properties.get("component.name");
+		if (name != null) {
+			return name.toString();
+		}
+		Object delegate = properties.get("fipro.data.cache.delegate");
+		if (delegate != null) {
+			return "cache of service " + delegate;
+		}
+		return "service " + properties.get("service.id");
+	}
+
+	private static String failure(CompletableFuture<?> future) {
+		try {
+			future.join();
+			return "";
+		} catch (CompletionException e) {
+			return String.valueOf(e.getCause());
+		}
+	}
+
+	private static long millis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+}
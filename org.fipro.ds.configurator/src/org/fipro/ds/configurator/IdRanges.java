@@ -0,0 +1,62 @@
+package org.fipro.ds.configurator;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import org.fipro.ds.data.DataService;
+
+/**
+ * Parses id specifications of the commands, e.g. <code>1-100,205,300-310</code>.
+ * Ranges are inclusive, so a range can not end at {@link Integer#MAX_VALUE}.
+ * Ranges are retrieved lazily via
+ * {@link DataService#getDataRange(int, int)}, consecutive single ids with one
+ * call of {@link DataService#getData(int[])}.
+ */
+final class IdRanges {
+
+	private IdRanges() {
+	}
+
+	static void retrieve(DataService service, String spec, Consumer<String> consumer) {
+		int[] singles = new int[16];
+		int count = 0;
+		for (String part : spec.split(",")) {
+			part = part.trim();
+			if (part.isEmpty()) {
+				throw new IllegalArgumentException("Empty id in " + spec);
+			}
+			int dash = part.indexOf('-', 1);
+			if (dash < 0) {
+				if (count == singles.length) {
+					singles = Arrays.copyOf(singles, count * 2);
+				}
+				singles[count++] = parseId(part, spec);
+				continue;
+			}
+			if (count > 0) {
+				Arrays.stream(service.getData(Arrays.copyOf(singles, count))).forEach(consumer);
+				count = 0;
+			}
+			int from = parseId(part.substring(0, dash).trim(), spec);
+			int to = parseId(part.substring(dash + 1).trim(), spec);
+			if (to < from) {
+				throw new IllegalArgumentException("Invalid range " + part);
+			}
+			if (to == Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Invalid range " + part + ", the last id must be less than " + Integer.MAX_VALUE);
+			}
+			service.getDataRange(from, to + 1).forEach(consumer);
+		}
+		if (count > 0) {
+			Arrays.stream(service.getData(Arrays.copyOf(singles, count))).forEach(consumer);
+		}
+	}
+
+	private static int parseId(String id, String spec) {
+		try {
+			return Integer.parseInt(id);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid id '" + id + "' in " + spec);
+		}
+	}
+}
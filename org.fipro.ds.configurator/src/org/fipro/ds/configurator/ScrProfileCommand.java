@@ -0,0 +1,377 @@
+package org.fipro.ds.configurator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.dto.ServiceReferenceDTO;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.runtime.ServiceComponentRuntime;
+import org.osgi.service.component.runtime.dto.ComponentConfigurationDTO;
+import org.osgi.service.component.runtime.dto.ComponentDescriptionDTO;
+import org.osgi.service.component.runtime.dto.SatisfiedReferenceDTO;
+
+/**
+ * Profiles the activation of the DS components.
+ * <p>
+ * SCR does not publish timestamps, so the profiler records the registration
+ * time of every service via service events. SCR registers the service of a
+ * component configuration as soon as it is satisfied, before it is activated,
+ * and the event is delivered synchronously, so for components that provide a
+ * service this is the exact time they became satisfied. The activation and
+ * the satisfaction of components without a service are not visible as
+ * events. For them the profiler polls the {@link ServiceComponentRuntime}
+ * DTOs and records when a component configuration is seen satisfied and
+ * active for the first time, so these times are only as exact as the poll
+ * interval, which is printed with the profile.
+ * <p>
+ * From that it derives the time from satisfied to activated per component,
+ * the time each reference became available, and the critical path: starting
+ * at the component activated last, it follows the reference that became
+ * available last back to the component that provided it.
+ * <p>
+ * The reference times are the registration times of the bound services, i.e.
+ * when a reference could be bound, not when SCR called the bind method. SCR
+ * does not expose the latter.
+ * <p>
+ * Polling stops after the configured duration, or earlier if no component
+ * changed its state for <code>idleSeconds</code>. The command polls once more
+ * before it prints, so later changes are still seen, with a coarser time.
+ * <p>
+ * The profiler is immediate, but it can only observe what happens after its
+ * bundle was started. Components that were already satisfied then are
+ * reported as <code>before</code>. To profile the whole startup, start
+ * <code>org.fipro.ds.configurator</code> at a lower start level than the
+ * bundles to measure, as done in the <code>OSGi Configure</code> launch
+ * configuration. Lazy components are only activated on first use, so for
+ * them the activation time includes the time until they were used.
+ * 
+ * <pre>
+ * fipro:scrprofile              print the profile
+ * fipro:scrprofile profile.json export the profile as JSON
+ * </pre>
+ */
+@Component(
+	immediate = true,
+	configurationPid = "org.fipro.ds.configurator.scrprofile",
+	property= {
+		"osgi.command.scope:String=fipro",
+		"osgi.command.function:String=scrprofile"
+	},
+	service=ScrProfileCommand.class
+)
+public class ScrProfileCommand implements ServiceListener {
+
+	@interface ProfileConfig {
+		/**
+		 * The interval in which the component states are polled, the
+		 * resolution of the activation times.
+		 */
+		long pollIntervalMillis() default 20;
+
+		/**
+		 * How long after the activation of the profiler the states are polled
+		 * at most.
+		 */
+		long durationSeconds() default 120;
+
+		/**
+		 * Polling stops if no component state changed for this time.
+		 */
+		long idleSeconds() default 5;
+	}
+
+	static final class Timeline {
+		final String name;
+		final long id;
+		final String bundle;
+		long satisfied = -1;
+		long activated = -1;
+		// satisfied taken from the registration of the component service
+		boolean satisfiedByEvent;
+		// already satisfied or active when the profiler started
+		boolean before;
+		boolean activeBefore;
+		int state;
+		ComponentDescriptionDTO description;
+		ComponentConfigurationDTO configuration;
+
+		Timeline(String name, long id, String bundle) {
+			this.name = name;
+			this.id = id;
+			this.bundle = bundle;
+		}
+
+		long activation() {
+			return (this.satisfied >= 0 && this.activated >= 0) ? this.activated - this.satisfied : -1;
+		}
+	}
+
+	@Reference
+	ServiceComponentRuntime scr;
+
+	private BundleContext context;
+	private long start;
+	private long pollIntervalMillis;
+	private final Map<Long, Long> serviceRegistrations = new ConcurrentHashMap<>();
+	// keyed by component.id, the id of the component configuration
+	private final Map<Long, Long> componentRegistrations = new ConcurrentHashMap<>();
+	private final Map<Long, Timeline> timelines = new ConcurrentHashMap<>();
+	private volatile Thread poller;
+
+	@Activate
+	void activate(BundleContext context, ProfileConfig config) {
+		this.context = context;
+		this.start = System.nanoTime();
+		this.pollIntervalMillis = Math.max(1, config.pollIntervalMillis());
+		context.addServiceListener(this);
+		poll();
+		this.timelines.values().forEach(timeline -> {
+			timeline.before = timeline.satisfied >= 0;
+			timeline.activeBefore = timeline.activated >= 0;
+		});
+
+		long interval = TimeUnit.MILLISECONDS.toNanos(this.pollIntervalMillis);
+		long idle = TimeUnit.SECONDS.toNanos(config.idleSeconds());
+		long end = this.start + TimeUnit.SECONDS.toNanos(config.durationSeconds());
+		Thread thread = new Thread(() -> {
+			long lastChange = System.nanoTime();
+			while (this.poller == Thread.currentThread()) {
+				long now = System.nanoTime();
+				if (poll()) {
+					lastChange = now;
+				} else if (now - lastChange > idle || now > end) {
+					return;
+				}
+				try {
+					TimeUnit.NANOSECONDS.sleep(interval);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}, "fipro-scrprofile");
+		thread.setDaemon(true);
+		this.poller = thread;
+		thread.start();
+	}
+
+	@Deactivate
+	void deactivate() {
+		this.context.removeServiceListener(this);
+		Thread thread = this.poller;
+		this.poller = null;
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	@Override
+	public void serviceChanged(ServiceEvent event) {
+		if (event.getType() == ServiceEvent.REGISTERED) {
+			long now = System.nanoTime();
+			Long id = (Long) event.getServiceReference().getProperty("service.id");
+			this.serviceRegistrations.putIfAbsent(id, now);
+			Object componentId = event.getServiceReference().getProperty("component.id");
+			if (componentId instanceof Long) {
+				this.componentRegistrations.putIfAbsent((Long) componentId, now);
+			}
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if a component configuration was added or
+	 *         changed its state since the last poll.
+	 */
+	private synchronized boolean poll() {
+		long now = System.nanoTime();
+		boolean changed = false;
+		for (ComponentDescriptionDTO description : this.scr.getComponentDescriptionDTOs()) {
+			for (ComponentConfigurationDTO configuration : this.scr.getComponentConfigurationDTOs(description)) {
+				Timeline timeline = this.timelines.computeIfAbsent(configuration.id,
+					id -> new Timeline(description.name, id, description.bundle.symbolicName));
+				timeline.description = description;
+				timeline.configuration = configuration;
+				changed |= timeline.state != configuration.state;
+				timeline.state = configuration.state;
+				if (configuration.state >= ComponentConfigurationDTO.SATISFIED
+						&& configuration.state != ComponentConfigurationDTO.FAILED_ACTIVATION
+						&& timeline.satisfied < 0) {
+					Long registered = this.componentRegistrations.get(configuration.id);
+					timeline.satisfied = (registered != null) ? registered : now;
+					timeline.satisfiedByEvent = registered != null;
+				}
+				if (configuration.state == ComponentConfigurationDTO.ACTIVE && timeline.activated < 0) {
+					timeline.activated = now;
+				}
+			}
+		}
+		return changed;
+	}
+
+	public synchronized void scrprofile() {
+		poll();
+		List<Timeline> sorted = new ArrayList<>(this.timelines.values());
+		sorted.sort(Comparator.comparingLong(Timeline::activation).reversed());
+
+		System.out.println(String.format("%-60s %-8s %12s %12s %12s", "Component", "State", "Satisfied", "Activated", "Activation"));
+		for (Timeline timeline : sorted) {
+			System.out.println(String.format("%-60s %-8s %12s %12s %12s",
+				timeline.name, state(timeline.state),
+				timeline.before ? "before" : millis(timeline.satisfied),
+				timeline.activeBefore ? "before" : millis(timeline.activated),
+				timeline.activation() >= 0 && !timeline.before ? format(timeline.activation() / 1e6) : "-"));
+			for (ReferenceTiming reference : references(timeline)) {
+				System.out.println(String.format("    %-56s service registered %s%s",
+					reference.name, millis(reference.available), reference.provider != null ? " from " + reference.provider : ""));
+			}
+		}
+
+		System.out.println();
+		System.out.println("Activated times, and satisfied times of components without a service, are polled every "
+			+ this.pollIntervalMillis + " ms and can be late by up to that interval.");
+
+		System.out.println();
+		System.out.println("Critical path:");
+		for (Timeline timeline : criticalPath()) {
+			System.out.println("    " + timeline.name + " (satisfied " + millis(timeline.satisfied) + " ms, activated " + millis(timeline.activated) + " ms)");
+		}
+	}
+
+	public synchronized void scrprofile(String file) throws IOException {
+		poll();
+		StringBuilder json = new StringBuilder("{\n  \"pollIntervalMs\": ").append(this.pollIntervalMillis)
+			.append(",\n  \"components\": [");
+		boolean first = true;
+		for (Timeline timeline : this.timelines.values()) {
+			json.append(first ? "\n" : ",\n");
+			first = false;
+			json.append("    {")
+				.append("\"name\": ").append(quote(timeline.name))
+				.append(", \"id\": ").append(timeline.id)
+				.append(", \"bundle\": ").append(quote(timeline.bundle))
+				.append(", \"state\": ").append(quote(state(timeline.state)))
+				.append(", \"satisfiedMs\": ").append(millis(timeline.satisfied))
+				.append(", \"satisfiedPolled\": ").append(!timeline.satisfiedByEvent)
+				.append(", \"activatedMs\": ").append(millis(timeline.activated))
+				.append(", \"activationMs\": ").append(timeline.activation() >= 0 && !timeline.before ? format(timeline.activation() / 1e6) : "null")
+				.append(", \"beforeProfiler\": ").append(timeline.before)
+				.append(", \"references\": [");
+			List<ReferenceTiming> references = references(timeline);
+			for (int i = 0; i < references.size(); i++) {
+				ReferenceTiming reference = references.get(i);
+				json.append(i == 0 ? "" : ", ")
+					.append("{\"name\": ").append(quote(reference.name))
+					.append(", \"availableMs\": ").append(millis(reference.available))
+					.append(", \"provider\": ").append(reference.provider != null ? quote(reference.provider) : "null")
+					.append("}");
+			}
+			json.append("]}");
+		}
+		json.append("\n  ],\n  \"criticalPath\": [");
+		List<Timeline> path = criticalPath();
+		for (int i = 0; i < path.size(); i++) {
+			json.append(i == 0 ? "" : ", ").append(quote(path.get(i).name));
+		}
+		json.append("]\n}\n");
+
+		Files.writeString(Path.of(file), json, StandardCharsets.UTF_8);
+		System.out.println("SCR profile written to " + Path.of(file).toAbsolutePath());
+	}
+
+	private static final class ReferenceTiming {
+		final String name;
+		final long available;
+		final String provider;
+
+		ReferenceTiming(String name, long available, String provider) {
+			this.name = name;
+			this.available = available;
+			this.provider = provider;
+		}
+	}
+
+	/**
+	 * @return The references of the component with the time the first bound
+	 *         service was registered, the one available last first.
+	 */
+	private List<ReferenceTiming> references(Timeline timeline) {
+		List<ReferenceTiming> result = new ArrayList<>();
+		if (timeline.configuration == null) {
+			return result;
+		}
+		for (SatisfiedReferenceDTO reference : timeline.configuration.satisfiedReferences) {
+			long available = -1;
+			String provider = null;
+			for (ServiceReferenceDTO service : reference.boundServices) {
+				// services registered before the profiler count as available at 0
+				long registered = this.serviceRegistrations.getOrDefault(service.id, this.start);
+				if (available < 0 || registered < available) {
+					available = registered;
+					Object componentName = service.properties.get("component.name");
+					provider = (componentName != null) ? componentName.toString() : null;
+				}
+			}
+			result.add(new ReferenceTiming(reference.name, available, provider));
+		}
+		result.sort(Comparator.comparingLong((ReferenceTiming r) -> r.available).reversed());
+		return result;
+	}
+
+	private List<Timeline> criticalPath() {
+		List<Timeline> path = new ArrayList<>();
+		Timeline current = this.timelines.values().stream()
+			.filter(t -> t.activated >= 0)
+			.max(Comparator.comparingLong((Timeline t) -> t.activated))
+			.orElse(null);
+		Set<String> visited = new HashSet<>();
+		while (current != null && visited.add(current.name)) {
+			path.add(0, current);
+			List<ReferenceTiming> references = references(current);
+			String provider = references.isEmpty() ? null : references.get(0).provider;
+			current = (provider == null) ? null : this.timelines.values().stream()
+				.filter(t -> provider.equals(t.name))
+				.findFirst()
+				.orElse(null);
+		}
+		return path;
+	}
+
+	private String millis(long nanos) {
+		return (nanos < 0) ? "null" : format((nanos - this.start) / 1e6);
+	}
+
+	private static String format(double millis) {
+		return String.format(Locale.ROOT, "%.3f", millis);
+	}
+
+	private static String state(int state) {
+		switch (state) {
+			case ComponentConfigurationDTO.UNSATISFIED_CONFIGURATION: return "UNSAT_CONFIG";
+			case ComponentConfigurationDTO.UNSATISFIED_REFERENCE: return "UNSAT_REF";
+			case ComponentConfigurationDTO.SATISFIED: return "SATISFIED";
+			case ComponentConfigurationDTO.ACTIVE: return "ACTIVE";
+			case ComponentConfigurationDTO.FAILED_ACTIVATION: return "FAILED";
+			default: return String.valueOf(state);
+		}
+	}
+
+	private static String quote(String value) {
+		return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+	}
+}
@@ -1,5 +1,11 @@
 package org.fipro.ds.data;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
 public interface DataService {
 
     /**
@@ -8,4 +14,55 @@ public interface DataService {
      * @return The data value for the given id.
      */
     String getData(int id);
-}
\ No newline at end of file
+
+    /**
+     * Returns the data values for several ids with a single call. The default
+     * implementation calls {@link #getData(int)} for every id, implementations
+     * should override it if they can retrieve several values more efficiently.
+     * 
+     * @param ids
+     * The ids of the requested data values.
+     * @return The data values in the order of the given ids.
+     */
+    default String[] getData(int[] ids) {
+        String[] result = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            result[i] = getData(ids[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the data values for a range of ids. The values are retrieved
+     * lazily while the returned stream is consumed, so even large ranges
+     * yield their first results immediately. The default implementation calls
+     * {@link #getData(int)} for every id.
+     * 
+     * @param from
+     * The first id, inclusive.
+     * @param to
+     * The last id, exclusive.
+     * @return The data values in ascending id order.
+     */
+    default Stream<String> getDataRange(int from, int to) {
+        return IntStream.range(from, to).mapToObj(this::getData);
+    }
+
+    /**
+     * Returns the data value for the given id asynchronously, so the values
+     * of several services can be requested concurrently. The default
+     * implementation calls {@link #getData(int)} on the given executor.
+     * Implementations that do not block may complete the returned stage
+     * directly, implementations with an asynchronous backend may ignore the
+     * executor.
+     * 
+     * @param id
+     * The id of the requested data value.
+     * @param executor
+     * The executor to use for blocking calls.
+     * @return A stage that is completed with the data value for the given id.
+     */
+    default CompletionStage<String> getDataAsync(int id, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> getData(id), executor);
+    }
+}
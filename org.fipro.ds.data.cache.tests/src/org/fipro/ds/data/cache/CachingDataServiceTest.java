@@ -0,0 +1,83 @@
+package org.fipro.ds.data.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.fipro.ds.data.DataService;
+import org.junit.jupiter.api.Test;
+
+public class CachingDataServiceTest {
+
+	private final RecordingDataService delegate = new RecordingDataService();
+	private final CachingDataService service = new CachingDataService(this.delegate, new IntCache(10_000, 0));
+
+	@Test
+	public void shouldLoadOnlyMissesOfBatch() {
+		this.service.getData(2);
+		this.service.getData(4);
+
+		String[] result = this.service.getData(new int[] { 1, 2, 3, 4, 5 });
+
+		assertArrayEquals(new String[] { "v1", "v2", "v3", "v4", "v5" }, result);
+		assertEquals(1, this.delegate.batches.size());
+		assertArrayEquals(new int[] { 1, 3, 5 }, this.delegate.batches.get(0));
+	}
+
+	@Test
+	public void shouldServeBatchFromCache() {
+		this.service.getData(new int[] { 1, 2, 3 });
+		this.delegate.batches.clear();
+
+		assertArrayEquals(new String[] { "v3", "v1" }, this.service.getData(new int[] { 3, 1 }));
+		assertEquals(0, this.delegate.batches.size());
+		assertEquals(0, this.delegate.singles);
+	}
+
+	@Test
+	public void shouldLoadRangeInChunks() {
+		this.service.getData(300);
+
+		List<String> result = this.service.getDataRange(0, 600).collect(Collectors.toList());
+
+		assertEquals(IntStream.range(0, 600).mapToObj(id -> "v" + id).collect(Collectors.toList()), result);
+		assertEquals(1, this.delegate.singles);
+		assertEquals(3, this.delegate.batches.size());
+		assertEquals(CachingDataService.RANGE_CHUNK, this.delegate.batches.get(0).length);
+		// the cached id is not loaded again
+		assertEquals(CachingDataService.RANGE_CHUNK - 1, this.delegate.batches.get(1).length);
+		assertEquals(600 - 2 * CachingDataService.RANGE_CHUNK, this.delegate.batches.get(2).length);
+	}
+
+	@Test
+	public void shouldLoadRangeLazily() {
+		List<String> result = this.service.getDataRange(0, Integer.MAX_VALUE)
+			.limit(10)
+			.collect(Collectors.toList());
+
+		assertEquals(10, result.size());
+		assertEquals(1, this.delegate.batches.size());
+	}
+
+	private static class RecordingDataService implements DataService {
+
+		final List<int[]> batches = new ArrayList<>();
+		int singles;
+
+		@Override
+		public String getData(int id) {
+			this.singles++;
+			return "v" + id;
+		}
+
+		@Override
+		public String[] getData(int[] ids) {
+			this.batches.add(ids.clone());
+			return IntStream.of(ids).mapToObj(id -> "v" + id).toArray(String[]::new);
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package org.fipro.ds.data.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class IntCacheTest {
+
+	// 4 entries per segment, so every segment is a table of 8 slots
+	private static final int MAX_ENTRIES = 4 << IntCache.SEGMENT_BITS;
+	private static final int MASK = 7;
+
+	@Test
+	public void shouldFindEntriesAfterRemovalAtWrapAround() throws InterruptedException {
+		IntCache cache = new IntCache(MAX_ENTRIES, 200);
+		int[] home7 = keys(7, 2);
+		int[] home0 = keys(0, 1);
+
+		cache.put(home7[0], "a");
+		Thread.sleep(250);
+		// b wraps around into slot 0, c is probed from its home slot 0 to slot 1
+		cache.put(home7[1], "b");
+		cache.put(home0[0], "c");
+
+		// removes the expired entry in slot 7, b and c are shifted back
+		assertNull(cache.get(home7[0]));
+		assertEquals("b", cache.get(home7[1]));
+		assertEquals("c", cache.get(home0[0]));
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.expirationCount());
+	}
+
+	@Test
+	public void shouldEvictUnreferencedEntryWhenSegmentIsFull() {
+		IntCache cache = new IntCache(MAX_ENTRIES, 0);
+		int[] home7 = keys(7, 2);
+		int[] home0 = keys(0, 2);
+		int[] home3 = keys(3, 1);
+
+		// a in slot 7, b wrapped into slot 0, c and d in the slots 1 and 2
+		cache.put(home7[0], "a");
+		cache.put(home7[1], "b");
+		cache.put(home0[0], "c");
+		cache.put(home0[1], "d");
+		cache.get(home7[0]);
+		cache.get(home0[0]);
+		cache.get(home0[1]);
+
+		// the clock hand starts at slot 0 and evicts b, the only entry not read
+		cache.put(home3[0], "e");
+
+		assertNull(cache.get(home7[1]));
+		assertEquals("a", cache.get(home7[0]));
+		assertEquals("c", cache.get(home0[0]));
+		assertEquals("d", cache.get(home0[1]));
+		assertEquals("e", cache.get(home3[0]));
+		assertEquals(4, cache.size());
+		assertEquals(1, cache.evictionCount());
+	}
+
+	@Test
+	public void shouldStayWithinMaxEntries() {
+		IntCache cache = new IntCache(MAX_ENTRIES, 0);
+		for (int i = 0; i < 1000; i++) {
+			cache.put(i, "value" + i);
+		}
+		assertTrue(cache.size() <= MAX_ENTRIES);
+		assertEquals(1000 - cache.size(), cache.evictionCount());
+	}
+
+	@Test
+	public void shouldReturnLastPutValueOrNothing() {
+		IntCache cache = new IntCache(MAX_ENTRIES, 0);
+		Map<Integer, String> last = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 100_000; i++) {
+			int key = random.nextInt(300);
+			if (random.nextBoolean()) {
+				String value = "value" + i;
+				cache.put(key, value);
+				last.put(key, value);
+			} else {
+				String value = cache.get(key);
+				if (value != null) {
+					assertEquals(last.get(key), value);
+				}
+			}
+		}
+		assertTrue(cache.size() <= MAX_ENTRIES);
+	}
+
+	@Test
+	public void shouldExpireEntriesAfterTtl() throws InterruptedException {
+		IntCache cache = new IntCache(MAX_ENTRIES, 50);
+		cache.put(1, "one");
+		assertEquals("one", cache.get(1));
+
+		Thread.sleep(100);
+
+		assertNull(cache.get(1));
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.expirationCount());
+		assertEquals(1, cache.hitCount());
+		assertEquals(1, cache.missCount());
+	}
+
+	@Test
+	public void shouldClearAllEntries() {
+		IntCache cache = new IntCache(MAX_ENTRIES, 0);
+		for (int i = 0; i < 50; i++) {
+			cache.put(i, "value" + i);
+		}
+
+		cache.clear();
+
+		assertEquals(0, cache.size());
+		for (int i = 0; i < 50; i++) {
+			assertNull(cache.get(i));
+		}
+		cache.put(7, "seven");
+		assertEquals("seven", cache.get(7));
+		assertEquals(1, cache.size());
+	}
+
+	/**
+	 * @return Keys of the first segment whose home is the given slot.
+	 */
+	private static int[] keys(int slot, int count) {
+		int[] keys = new int[count];
+		int found = 0;
+		for (int key = 0; found < count; key++) {
+			int hash = IntCache.spread(key);
+			if (hash >>> (32 - IntCache.SEGMENT_BITS) == 0 && (hash & MASK) == slot) {
+				keys[found++] = key;
+			}
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,118 @@
+package org.fipro.ds.data.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.fipro.ds.data.DataService;
+
+/**
+ * {@link DataService} that caches the values of the wrapped
+ * {@link DataService}. Instances are registered by {@link DataServiceCache}.
+ * <p>
+ * {@link #getDataRange(int, int)} looks up the range in chunks, the misses of
+ * a chunk are loaded with a single {@link DataService#getData(int[])} call of
+ * the wrapped service.
+ */
+final class CachingDataService implements DataService {
+
+	/** The number of ids that are looked up together in a range. */
+	static final int RANGE_CHUNK = 256;
+
+	private final DataService delegate;
+	private volatile IntCache cache;
+
+	CachingDataService(DataService delegate, IntCache cache) {
+		this.delegate = delegate;
+		this.cache = cache;
+	}
+
+	IntCache getCache() {
+		return this.cache;
+	}
+
+	void setCache(IntCache cache) {
+		this.cache = cache;
+	}
+
+	@Override
+	public String getData(int id) {
+		IntCache cache = this.cache;
+		String result = cache.get(id);
+		if (result == null) {
+			// concurrent misses of the same id may both reach the delegate,
+			// which is cheaper than blocking the segment on a slow backend
+			result = this.delegate.getData(id);
+			if (result != null) {
+				cache.put(id, result);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public String[] getData(int[] ids) {
+		IntCache cache = this.cache;
+		String[] result = new String[ids.length];
+		int[] missing = null;
+		int missingCount = 0;
+		for (int i = 0; i < ids.length; i++) {
+			result[i] = cache.get(ids[i]);
+			if (result[i] == null) {
+				if (missing == null) {
+					missing = new int[ids.length - i];
+				}
+				missing[missingCount++] = i;
+			}
+		}
+		if (missingCount == 0) {
+			return result;
+		}
+
+		// fetch all misses with a single batch call of the delegate
+		int[] missingIds = new int[missingCount];
+		for (int i = 0; i < missingCount; i++) {
+			missingIds[i] = ids[missing[i]];
+		}
+		String[] loaded = this.delegate.getData(missingIds);
+		for (int i = 0; i < missingCount; i++) {
+			result[missing[i]] = loaded[i];
+			if (loaded[i] != null) {
+				cache.put(missingIds[i], loaded[i]);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Stream<String> getDataRange(int from, int to) {
+		long length = Math.max(0, (long) to - from);
+		int chunks = (int) ((length + RANGE_CHUNK - 1) / RANGE_CHUNK);
+		// the chunks are loaded while the stream is consumed, so the range stays lazy
+		return IntStream.range(0, chunks)
+			.mapToObj(chunk -> {
+				int start = (int) (from + (long) chunk * RANGE_CHUNK);
+				int end = (int) Math.min(to, (long) start + RANGE_CHUNK);
+				return getData(IntStream.range(start, end).toArray());
+			})
+			.flatMap(Arrays::stream);
+	}
+
+	@Override
+	public CompletionStage<String> getDataAsync(int id, Executor executor) {
+		IntCache cache = this.cache;
+		String result = cache.get(id);
+		if (result != null) {
+			return CompletableFuture.completedFuture(result);
+		}
+		return this.delegate.getDataAsync(id, executor).thenApply(loaded -> {
+			if (loaded != null) {
+				cache.put(id, loaded);
+			}
+			return loaded;
+		});
+	}
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package org.fipro.ds.data.cache;
+
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+@Component(
+	property= {
+		"osgi.command.scope:String=fipro",
+		"osgi.command.function:String=datacache"},
+	service=DataCacheCommand.class
+)
+public class DataCacheCommand {
+
+	@Reference
+	private DataServiceCache dataServiceCache;
+
+	public void datacache() {
+		this.dataServiceCache.getCaches().forEach((name, cache) -> {
+			long hits = cache.hitCount();
+			long misses = cache.missCount();
+			long requests = hits + misses;
+			System.out.println(name);
+			System.out.println("  entries:     " + cache.size() + " / " + cache.maxEntries());
+			System.out.println("  hits:        " + hits);
+			System.out.println("  misses:      " + misses);
+			System.out.println("  evictions:   " + cache.evictionCount());
+			System.out.println("  expirations: " + cache.expirationCount());
+			System.out.println("  hit rate:    " + (requests == 0 ? 0 : (100 * hits / requests)) + "%");
+		});
+	}
+
+	public void datacache(String clear) {
+		if (!"clear".equals(clear)) {
+			throw new IllegalArgumentException("Usage: datacache [clear]");
+		}
+		this.dataServiceCache.getCaches().values().forEach(IntCache::clear);
+	}
+}
@@ -0,0 +1,203 @@
+package org.fipro.ds.data.cache;
+
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fipro.ds.data.DataService;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+
+/**
+ * Registers a caching {@link DataService} for every other {@link DataService}.
+ * The cache is registered with the <code>fipro.connectivity</code> property of
+ * the wrapped service and a ranking that is one higher, so consumers that bind
+ * the highest ranked {@link DataService} use the cache without any
+ * modification. The registrations follow ranking changes of the wrapped
+ * services.
+ * <p>
+ * The caches are configured via the PID <code>org.fipro.ds.data.cache</code>.
+ * A configuration change replaces the caches, which drops their entries and
+ * statistics.
+ * <p>
+ * The caching services are registered and unregistered outside of the
+ * component monitor, as the registry delivers the service events
+ * synchronously to listeners that may call back into this component.
+ */
+@Component(
+	configurationPid = "org.fipro.ds.data.cache",
+	service = DataServiceCache.class,
+	immediate = true
+)
+public class DataServiceCache {
+
+	/** Set to <code>true</code> on the caching services. */
+	public static final String CACHE_PROPERTY = "fipro.data.cache";
+	/** The <code>service.id</code> of the service wrapped by a caching service. */
+	public static final String DELEGATE_PROPERTY = "fipro.data.cache.delegate";
+
+	@interface CacheConfig {
+		int maxEntries() default 10_000;
+		long ttlSeconds() default 300;
+	}
+
+	private static final class Decorator {
+		final CachingDataService service;
+		ServiceRegistration<DataService> registration;
+
+		Decorator(CachingDataService service) {
+			this.service = service;
+		}
+	}
+
+	private final Map<ServiceReference<DataService>, Decorator> decorators = new LinkedHashMap<>();
+	private BundleContext context;
+	private CacheConfig config;
+
+	@Activate
+	void activate(BundleContext context, CacheConfig config) {
+		Map<ServiceReference<DataService>, Decorator> toRegister;
+		synchronized (this) {
+			this.context = context;
+			this.config = config;
+			this.decorators.values().forEach(decorator -> decorator.service.setCache(createCache()));
+			toRegister = new LinkedHashMap<>(this.decorators);
+		}
+		toRegister.forEach((reference, decorator) -> register(context, reference, decorator));
+	}
+
+	@Modified
+	synchronized void modified(CacheConfig config) {
+		this.config = config;
+		this.decorators.values().forEach(decorator -> decorator.service.setCache(createCache()));
+	}
+
+	@Deactivate
+	void deactivate() {
+		List<ServiceRegistration<DataService>> toUnregister = new ArrayList<>();
+		synchronized (this) {
+			this.decorators.values().forEach(decorator -> {
+				if (decorator.registration != null) {
+					toUnregister.add(decorator.registration);
+					decorator.registration = null;
+				}
+			});
+			this.context = null;
+		}
+		toUnregister.forEach(DataServiceCache::unregister);
+	}
+
+	@Reference(
+		cardinality = ReferenceCardinality.MULTIPLE,
+		policy = ReferencePolicy.DYNAMIC,
+		target = "(!(" + CACHE_PROPERTY + "=true))")
+	void bindDataService(DataService service, ServiceReference<DataService> reference) {
+		Decorator decorator;
+		BundleContext context;
+		synchronized (this) {
+			// before the activation the configuration is not known yet,
+			// the cache is created and the service registered in activate()
+			decorator = new Decorator(
+					new CachingDataService(service, this.config != null ? createCache() : null));
+			this.decorators.put(reference, decorator);
+			context = this.context;
+		}
+		if (context != null) {
+			register(context, reference, decorator);
+		}
+	}
+
+	void updatedDataService(ServiceReference<DataService> reference) {
+		ServiceRegistration<DataService> registration;
+		synchronized (this) {
+			Decorator decorator = this.decorators.get(reference);
+			registration = (decorator != null) ? decorator.registration : null;
+		}
+		if (registration != null) {
+			try {
+				registration.setProperties(properties(reference));
+			} catch (IllegalStateException e) {
+				// unregistered concurrently
+			}
+		}
+	}
+
+	void unbindDataService(ServiceReference<DataService> reference) {
+		ServiceRegistration<DataService> registration = null;
+		synchronized (this) {
+			Decorator decorator = this.decorators.remove(reference);
+			if (decorator != null) {
+				registration = decorator.registration;
+				decorator.registration = null;
+			}
+		}
+		if (registration != null) {
+			unregister(registration);
+		}
+	}
+
+	/**
+	 * @return The caches by the <code>component.name</code> and connectivity
+	 * of the wrapped services.
+	 */
+	synchronized Map<String, IntCache> getCaches() {
+		Map<String, IntCache> caches = new LinkedHashMap<>();
+		this.decorators.forEach((reference, decorator) -> caches.put(
+				reference.getProperty("component.name") + " [" + reference.getProperty("fipro.connectivity") + "]",
+				decorator.service.getCache()));
+		return caches;
+	}
+
+	private IntCache createCache() {
+		return new IntCache(this.config.maxEntries(), this.config.ttlSeconds() * 1000);
+	}
+
+	private void register(BundleContext context, ServiceReference<DataService> reference, Decorator decorator) {
+		ServiceRegistration<DataService> registration = context.registerService(
+				DataService.class, decorator.service, properties(reference));
+		synchronized (this) {
+			if (this.context == context
+					&& this.decorators.get(reference) == decorator
+					&& decorator.registration == null) {
+				decorator.registration = registration;
+				return;
+			}
+		}
+		// unbound, deactivated or registered by another thread in between
+		unregister(registration);
+	}
+
+	private static void unregister(ServiceRegistration<DataService> registration) {
+		try {
+			registration.unregister();
+		} catch (IllegalStateException e) {
+			// already unregistered with the stop of the bundle
+		}
+	}
+
+	private static Dictionary<String, Object> properties(ServiceReference<DataService> reference) {
+		Dictionary<String, Object> properties = new Hashtable<>();
+		Object connectivity = reference.getProperty("fipro.connectivity");
+		if (connectivity != null) {
+			properties.put("fipro.connectivity", connectivity);
+		}
+		Object ranking = reference.getProperty(Constants.SERVICE_RANKING);
+		properties.put(Constants.SERVICE_RANKING, 
+				(ranking instanceof Integer ? (Integer) ranking : 0) + 1);
+		properties.put(CACHE_PROPERTY, Boolean.TRUE);
+		properties.put(DELEGATE_PROPERTY, reference.getProperty(Constants.SERVICE_ID));
+		return properties;
+	}
+}
@@ -0,0 +1,235 @@
+package org.fipro.ds.data.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size bounded cache of String values keyed by primitive <code>int</code>
+ * ids, so neither a lookup nor an entry boxes the id.
+ * <p>
+ * The cache is split into segments that are guarded by their own lock. Each
+ * segment is an open addressing hash table with linear probing and a load
+ * factor of at most 0.5. The size bound is split evenly over the segments.
+ * Removals shift the following entries back into the gap, so no tombstones
+ * accumulate.
+ * <p>
+ * A full segment evicts with the CLOCK policy, an approximation of LRU: the
+ * clock hand clears the reference bit of entries that were read since it
+ * passed them last and evicts the first entry that was not read. Expired
+ * entries are removed when they are looked up or passed by the clock hand.
+ */
+final class IntCache {
+
+	static final int SEGMENT_BITS = 4;
+
+	private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+	private final int maxEntries;
+	private final long ttlNanos;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+
+	/**
+	 * @param maxEntries
+	 * The maximum number of entries.
+	 * @param ttlMillis
+	 * The time an entry is valid after it was added, values &lt;= 0 disable
+	 * the expiration.
+	 */
+	IntCache(int maxEntries, long ttlMillis) {
+		this.maxEntries = Math.max(this.segments.length, maxEntries);
+		this.ttlNanos = ttlMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(ttlMillis) : 0;
+		int perSegment = (this.maxEntries + this.segments.length - 1) / this.segments.length;
+		for (int i = 0; i < this.segments.length; i++) {
+			this.segments[i] = new Segment(perSegment);
+		}
+	}
+
+	/**
+	 * @return The cached value or <code>null</code> if there is no valid entry
+	 * for the given key.
+	 */
+	String get(int key) {
+		int hash = spread(key);
+		return segmentFor(hash).get(key, hash);
+	}
+
+	void put(int key, String value) {
+		int hash = spread(key);
+		segmentFor(hash).put(key, hash, value);
+	}
+
+	void clear() {
+		for (Segment segment : this.segments) {
+			segment.clear();
+		}
+	}
+
+	int size() {
+		int size = 0;
+		for (Segment segment : this.segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	int maxEntries() {
+		return this.maxEntries;
+	}
+
+	long hitCount() {
+		return this.hits.sum();
+	}
+
+	long missCount() {
+		return this.misses.sum();
+	}
+
+	long evictionCount() {
+		return this.evictions.sum();
+	}
+
+	long expirationCount() {
+		return this.expirations.sum();
+	}
+
+	private Segment segmentFor(int hash) {
+		// the upper bits select the segment, the lower bits the slot
+		return this.segments[hash >>> (32 - SEGMENT_BITS)];
+	}
+
+	static int spread(int x) {
+		x = ((x >>> 16) ^ x) * 0x85ebca6b;
+		x = ((x >>> 13) ^ x) * 0xc2b2ae35;
+		return (x >>> 16) ^ x;
+	}
+
+	private final class Segment {
+
+		private final int maxEntries;
+		private final int mask;
+		private final int[] keys;
+		// a null value marks an empty slot
+		private final String[] values;
+		private final long[] expires;
+		private final boolean[] referenced;
+		private int size;
+		private int hand;
+
+		Segment(int maxEntries) {
+			int capacity = Integer.highestOneBit(Math.max(2, maxEntries) * 2 - 1) << 1;
+			this.maxEntries = maxEntries;
+			this.mask = capacity - 1;
+			this.keys = new int[capacity];
+			this.values = new String[capacity];
+			this.expires = new long[capacity];
+			this.referenced = new boolean[capacity];
+		}
+
+		synchronized String get(int key, int hash) {
+			int index = indexOf(key, hash);
+			if (index < 0) {
+				misses.increment();
+				return null;
+			}
+			if (ttlNanos > 0 && this.expires[index] - System.nanoTime() < 0) {
+				remove(index);
+				expirations.increment();
+				misses.increment();
+				return null;
+			}
+			this.referenced[index] = true;
+			hits.increment();
+			return this.values[index];
+		}
+
+		synchronized void put(int key, int hash, String value) {
+			long expires = ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0;
+			int index = hash & this.mask;
+			for (; this.values[index] != null; index = (index + 1) & this.mask) {
+				if (this.keys[index] == key) {
+					this.values[index] = value;
+					this.expires[index] = expires;
+					return;
+				}
+			}
+			if (this.size == this.maxEntries) {
+				evict();
+				// the eviction may have shifted entries into the probe sequence
+				index = hash & this.mask;
+				while (this.values[index] != null) {
+					index = (index + 1) & this.mask;
+				}
+			}
+			this.keys[index] = key;
+			this.values[index] = value;
+			this.expires[index] = expires;
+			// only entries that are read again survive the next pass of the hand
+			this.referenced[index] = false;
+			this.size++;
+		}
+
+		synchronized void clear() {
+			Arrays.fill(this.values, null);
+			this.size = 0;
+			this.hand = 0;
+		}
+
+		synchronized int size() {
+			return this.size;
+		}
+
+		private int indexOf(int key, int hash) {
+			for (int i = hash & this.mask; this.values[i] != null; i = (i + 1) & this.mask) {
+				if (this.keys[i] == key) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private void evict() {
+			long now = System.nanoTime();
+			// terminates after at most two rounds, the first one clears all reference bits
+			for (;;) {
+				int index = this.hand;
+				this.hand = (index + 1) & this.mask;
+				if (this.values[index] == null) {
+					continue;
+				}
+				if (ttlNanos > 0 && this.expires[index] - now < 0) {
+					expirations.increment();
+				} else if (this.referenced[index]) {
+					this.referenced[index] = false;
+					continue;
+				} else {
+					evictions.increment();
+				}
+				remove(index);
+				// a shifted entry may now occupy the slot, it is the next candidate
+				this.hand = index;
+				return;
+			}
+		}
+
+		private void remove(int index) {
+			int gap = index;
+			for (int i = (index + 1) & this.mask; this.values[i] != null; i = (i + 1) & this.mask) {
+				int home = spread(this.keys[i]) & this.mask;
+				// the entry may fill the gap if the gap lies between its home slot and its slot
+				if (((i - home) & this.mask) >= ((i - gap) & this.mask)) {
+					this.keys[gap] = this.keys[i];
+					this.values[gap] = this.values[i];
+					this.expires[gap] = this.expires[i];
+					this.referenced[gap] = this.referenced[i];
+					gap = i;
+				}
+			}
+			this.values[gap] = null;
+			this.size--;
+		}
+	}
+}
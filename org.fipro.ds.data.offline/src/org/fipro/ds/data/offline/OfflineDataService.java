@@ -1,6 +1,12 @@
 package org.fipro.ds.data.offline;
 
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.fipro.ds.data.DataService;
 import org.fipro.ds.data.FiproConnectivity;
@@ -26,8 +32,44 @@ public class OfflineDataService implements DataService {
         System.out.println();
     }
 	
+    private static final String PREFIX = "OFFLINE data for id ";
+    private static final int RANGE_CHUNK = 256;
+
     @Override
     public String getData(int id) {
-        return "OFFLINE data for id " + id;
+        return PREFIX + id;
+    }
+
+    @Override
+    public String[] getData(int[] ids) {
+        String[] result = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            result[i] = PREFIX + ids[i];
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<String> getDataRange(int from, int to) {
+        long length = Math.max(0, (long) to - from);
+        int chunks = (int) ((length + RANGE_CHUNK - 1) / RANGE_CHUNK);
+        // the values are built a chunk at a time while the stream is consumed
+        return IntStream.range(0, chunks)
+            .mapToObj(chunk -> {
+                int start = (int) (from + (long) chunk * RANGE_CHUNK);
+                int end = (int) Math.min(to, (long) start + RANGE_CHUNK);
+                String[] values = new String[end - start];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = PREFIX + (start + i);
+                }
+                return values;
+            })
+            .flatMap(Arrays::stream);
+    }
+
+    @Override
+    public CompletionStage<String> getDataAsync(int id, Executor executor) {
+        // nothing blocks, so no thread switch is needed
+        return CompletableFuture.completedFuture(getData(id));
     }
 }
\ No newline at end of file
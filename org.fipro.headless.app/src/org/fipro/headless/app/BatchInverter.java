@@ -0,0 +1,260 @@
+package org.fipro.headless.app;
+
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fipro.inverter.StringInverter;
+
+/**
+ * Batch mode of the headless application. Lines are read from files or stdin,
+ * inverted in chunks on a thread pool and written by a single writer thread
+ * through one channel. The number of chunks in flight is bounded, so the
+ * memory usage does not depend on the input size.
+ * 
+ * <pre>
+ * -batch [-unordered] [-threads &lt;n&gt;] [-chunk &lt;lines&gt;] [file ...]
+ * </pre>
+ */
+class BatchInverter {
+
+	static final String BATCH = "-batch";
+
+	private static final Future<ByteBuffer> END = CompletableFuture.completedFuture(null);
+
+	private final StringInverter inverter;
+	private final int threads;
+	private final boolean ordered;
+	private final int chunkLines;
+
+	BatchInverter(StringInverter inverter, int threads, boolean ordered, int chunkLines) {
+		this.inverter = inverter;
+		this.threads = threads;
+		this.ordered = ordered;
+		this.chunkLines = chunkLines;
+	}
+
+	/**
+	 * @return <code>true</code> if the arguments request the batch mode.
+	 */
+	static boolean isBatch(String[] args) {
+		for (String arg : args) {
+			if (BATCH.equals(arg)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Runs the batch mode as configured by the given arguments, writing to
+	 * stdout.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If an option has no value or a value that is not a positive
+	 *             number.
+	 */
+	static void run(StringInverter inverter, String[] args) throws IOException, InterruptedException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		int chunkLines = 4096;
+		boolean ordered = true;
+		List<Path> files = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case BATCH:
+					break;
+				case "-unordered":
+					ordered = false;
+					break;
+				case "-threads":
+					threads = positive(args, ++i);
+					break;
+				case "-chunk":
+					chunkLines = positive(args, ++i);
+					break;
+				default:
+					files.add(Path.of(args[i]));
+			}
+		}
+
+		// write to the file descriptor directly, System.out synchronizes and
+		// flushes per line. The stream is not closed, that would close stdout
+		// for the whole process, including the console.
+		System.out.flush();
+		FileOutputStream stdout = new FileOutputStream(FileDescriptor.out);
+		new BatchInverter(inverter, threads, ordered, chunkLines).run(files, System.in, stdout.getChannel());
+		stdout.flush();
+	}
+
+	private static int positive(String[] args, int index) {
+		String option = args[index - 1];
+		if (index == args.length) {
+			throw new IllegalArgumentException(option + " requires a number");
+		}
+		int value;
+		try {
+			value = Integer.parseInt(args[index]);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(option + " requires a number, not " + args[index]);
+		}
+		if (value <= 0) {
+			throw new IllegalArgumentException(option + " must be greater than 0, not " + value);
+		}
+		return value;
+	}
+
+	/**
+	 * Inverts all lines of the given files, or of the given input if no files
+	 * are given.
+	 * 
+	 * @return The number of inverted lines.
+	 */
+	long run(List<Path> files, InputStream in, WritableByteChannel out) throws IOException, InterruptedException {
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(this.threads, r -> {
+			Thread thread = new Thread(r, "fipro-batch-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		Semaphore permits = new Semaphore(this.threads * 2);
+		BlockingQueue<Future<ByteBuffer>> results = new LinkedBlockingQueue<>();
+		ResultWriter writer = new ResultWriter(results, permits, out);
+		writer.start();
+
+		long lines = 0;
+		try {
+			if (files.isEmpty()) {
+				lines = read(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), pool, permits, results, writer);
+			} else {
+				for (Path file : files) {
+					try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+						lines += read(reader, pool, permits, results, writer);
+					}
+				}
+			}
+		} finally {
+			pool.shutdown();
+			if (!this.ordered) {
+				// results are only queued once a chunk is processed
+				pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			}
+			results.add(END);
+			writer.join();
+		}
+		writer.checkFailure();
+		return lines;
+	}
+
+	private long read(BufferedReader reader, ExecutorService pool, Semaphore permits,
+			BlockingQueue<Future<ByteBuffer>> results, ResultWriter writer) throws IOException, InterruptedException {
+		long count = 0;
+		List<String> chunk = new ArrayList<>(this.chunkLines);
+		String line;
+		while ((line = reader.readLine()) != null) {
+			chunk.add(line);
+			count++;
+			if (chunk.size() == this.chunkLines) {
+				submit(chunk, pool, permits, results, writer);
+				chunk = new ArrayList<>(this.chunkLines);
+			}
+		}
+		if (!chunk.isEmpty()) {
+			submit(chunk, pool, permits, results, writer);
+		}
+		return count;
+	}
+
+	private void submit(List<String> chunk, ExecutorService pool, Semaphore permits,
+			BlockingQueue<Future<ByteBuffer>> results, ResultWriter writer) throws IOException, InterruptedException {
+		permits.acquire();
+		writer.checkFailure();
+		if (this.ordered) {
+			// the writer waits for the chunks in the order they were submitted
+			results.add(pool.submit(() -> invert(chunk)));
+		} else {
+			pool.execute(() -> {
+				try {
+					results.add(CompletableFuture.completedFuture(invert(chunk)));
+				} catch (RuntimeException e) {
+					results.add(CompletableFuture.failedFuture(e));
+				}
+			});
+		}
+	}
+
+	private ByteBuffer invert(List<String> chunk) {
+		StringBuilder builder = new StringBuilder(chunk.size() * 64);
+		for (String line : chunk) {
+			builder.append(this.inverter.invert(line)).append('\n');
+		}
+		// encoding in the worker keeps the writer thread free for I/O
+		return StandardCharsets.UTF_8.encode(CharBuffer.wrap(builder));
+	}
+
+	private static class ResultWriter extends Thread {
+
+		private final BlockingQueue<Future<ByteBuffer>> results;
+		private final Semaphore permits;
+		private final WritableByteChannel out;
+		private volatile Throwable failure;
+
+		ResultWriter(BlockingQueue<Future<ByteBuffer>> results, Semaphore permits, WritableByteChannel out) {
+			super("fipro-batch-writer");
+			setDaemon(true);
+			this.results = results;
+			this.permits = permits;
+			this.out = out;
+		}
+
+		@Override
+		public void run() {
+			try {
+				Future<ByteBuffer> result;
+				while ((result = this.results.take()) != END) {
+					ByteBuffer buffer = result.get();
+					while (buffer.hasRemaining()) {
+						this.out.write(buffer);
+					}
+					this.permits.release();
+					StartupReport.inverted();
+				}
+			} catch (IOException | ExecutionException | RuntimeException e) {
+				this.failure = (e instanceof ExecutionException) ? e.getCause() : e;
+				// unblock the reader, it fails on the next chunk
+				this.permits.release(Integer.MAX_VALUE / 2);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		void checkFailure() throws IOException {
+			Throwable failure = this.failure;
+			if (failure instanceof IOException) {
+				throw (IOException) failure;
+			} else if (failure != null) {
+				throw new IOException("Batch inversion failed", failure);
+			}
+		}
+	}
+}
@@ -1,11 +1,14 @@
 package org.fipro.headless.app;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Map;
 
 import org.fipro.inverter.StringInverter;
+import org.osgi.framework.BundleContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 
 @Component(immediate = true)
@@ -21,11 +24,17 @@ public class BndStarter {
 		this.launcherArgs = (String[]) map.get("launcher.arguments");
 	}
 
+	// reluctant on purpose, a rebind would reactivate and run the application
+	// again, so the cache is only used if it is registered before the start
 	@Reference
 	StringInverter inverter;
+
+	private InverterDaemon daemon;
 	
 	@Activate
-	void activate() {
+	void activate(BundleContext context) {
+		StartupReport.init(context);
+
 		String console = System.getProperty("osgi.console");
 		boolean isConsoleConfigured =  console != null && console.length() == 0;
 
@@ -34,8 +43,31 @@ public class BndStarter {
 				.filter(arg -> !"-console".equals(arg) && !"-consoleLog".equals(arg))
 				.toArray(String[]::new);
 
-		for (String arg : args) {
-			System.out.println(inverter.invert(arg));
+		if (InverterDaemon.isDaemon(args)) {
+			try {
+				this.daemon = InverterDaemon.start(inverter, args);
+				// keep the framework running to serve requests
+				return;
+			} catch (IOException e) {
+				e.printStackTrace();
+			} catch (IllegalArgumentException e) {
+				System.err.println(e.getMessage());
+			}
+		} else if (BatchInverter.isBatch(args)) {
+			try {
+				BatchInverter.run(inverter, args);
+			} catch (IOException e) {
+				e.printStackTrace();
+			} catch (IllegalArgumentException e) {
+				System.err.println(e.getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		} else {
+			for (String arg : args) {
+				System.out.println(inverter.invert(arg));
+				StartupReport.inverted();
+			}
 		}
 
 		if (!isConsoleConfigured) {
@@ -44,4 +76,11 @@ public class BndStarter {
 			System.exit(0);
 		}
 	}
-}
\ No newline at end of file
+
+	@Deactivate
+	void deactivate() throws IOException {
+		if (this.daemon != null) {
+			this.daemon.close();
+		}
+	}
+}
@@ -7,8 +7,10 @@ import java.util.Arrays;
 
 import org.eclipse.osgi.service.environment.EnvironmentInfo;
 import org.fipro.inverter.StringInverter;
+import org.osgi.framework.BundleContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 
 @Component(immediate = true)
@@ -20,11 +22,17 @@ public class EquinoxStarter {
 	@Reference
 	EnvironmentInfo environmentInfo;
 
+	// reluctant on purpose, a rebind would reactivate and run the application
+	// again, so the cache is only used if it is registered before the start
 	@Reference
 	StringInverter inverter;
 
+	private InverterDaemon daemon;
+
 	@Activate
-	void activate() {
+	void activate(BundleContext context) {
+		StartupReport.init(context);
+
 		if (environmentInfo.getFrameworkArgs() != null
 				&& environmentInfo.getNonFrameworkArgs() != null) {
 			
@@ -35,8 +43,32 @@ public class EquinoxStarter {
 			boolean showConsoleLog = Arrays.stream(environmentInfo.getFrameworkArgs())
 					.anyMatch(arg -> "-consoleLog".equals(arg));
 			
-			for (String arg : this.environmentInfo.getNonFrameworkArgs()) {
-				System.out.println(inverter.invert(arg));
+			String[] args = this.environmentInfo.getNonFrameworkArgs();
+			if (InverterDaemon.isDaemon(args)) {
+				try {
+					this.daemon = InverterDaemon.start(inverter, args);
+					// keep the framework running to serve requests
+					return;
+				} catch (IOException e) {
+					e.printStackTrace();
+				} catch (IllegalArgumentException e) {
+					System.err.println(e.getMessage());
+				}
+			} else if (BatchInverter.isBatch(args)) {
+				try {
+					BatchInverter.run(inverter, args);
+				} catch (IOException e) {
+					e.printStackTrace();
+				} catch (IllegalArgumentException e) {
+					System.err.println(e.getMessage());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			} else {
+				for (String arg : args) {
+					System.out.println(inverter.invert(arg));
+					StartupReport.inverted();
+				}
 			}
 			
 			// If the -consoleLog parameter is used, a separate shell is opened. 
@@ -60,4 +92,11 @@ public class EquinoxStarter {
 			}
 		}
 	}
+
+	@Deactivate
+	void deactivate() throws IOException {
+		if (this.daemon != null) {
+			this.daemon.close();
+		}
+	}
 }
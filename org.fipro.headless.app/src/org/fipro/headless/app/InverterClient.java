@@ -0,0 +1,138 @@
+package org.fipro.headless.app;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Client launcher for the {@link InverterDaemon}. It has no dependencies on
+ * OSGi, so it can be started directly from the bundle jar:
+ * 
+ * <pre>
+ * java -cp org.fipro.headless.app.jar org.fipro.headless.app.InverterClient [-socket &lt;path&gt;] [value ...]
+ * </pre>
+ * 
+ * The given values, or the lines of stdin if there are none, are sent as
+ * pipelined requests while the responses are read concurrently and printed
+ * one per line.
+ */
+public class InverterClient {
+
+	/**
+	 * The maximum length of a request or response frame.
+	 */
+	static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Path socket = defaultSocket();
+		int first = 0;
+		if (args.length >= 1 && "-socket".equals(args[0])) {
+			if (args.length == 1) {
+				System.err.println("-socket requires a path");
+				System.exit(2);
+			}
+			socket = Path.of(args[1]);
+			first = 2;
+		}
+		String[] values = Arrays.copyOfRange(args, first, args.length);
+
+		try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+			channel.connect(UnixDomainSocketAddress.of(socket));
+
+			// reading and writing a channel concurrently is supported, so the
+			// requests are sent while the responses arrive
+			Thread sender = new Thread(() -> send(channel, values), "fipro-client-sender");
+			sender.start();
+			receive(channel);
+			sender.join();
+		}
+	}
+
+	/**
+	 * @return The socket in the runtime directory of the user, or in a
+	 *         directory of the user below the temporary directory.
+	 */
+	static Path defaultSocket() {
+		String runtimeDirectory = System.getenv("XDG_RUNTIME_DIR");
+		Path directory = (runtimeDirectory != null && !runtimeDirectory.isEmpty())
+			? Path.of(runtimeDirectory)
+			: Path.of(System.getProperty("java.io.tmpdir"), "fipro-" + System.getProperty("user.name"));
+		return directory.resolve("fipro-inverter.sock");
+	}
+
+	private static void receive(SocketChannel channel) throws IOException {
+		ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 64 * 1024);
+		try {
+			while (channel.read(in) >= 0) {
+				in.flip();
+				while (in.remaining() >= 4) {
+					int length = in.getInt(in.position());
+					if (length < 0 || length > MAX_FRAME_BYTES) {
+						throw new IOException("Invalid frame length " + length);
+					}
+					if (in.remaining() < 4 + length) {
+						if (in.capacity() < 4 + length) {
+							in = ByteBuffer.allocate(4 + length).put(in).flip();
+						}
+						break;
+					}
+					in.getInt();
+					out.write(in.array(), in.arrayOffset() + in.position(), length);
+					out.write('\n');
+					in.position(in.position() + length);
+				}
+				in.compact();
+			}
+		} finally {
+			out.flush();
+		}
+	}
+
+	private static void send(SocketChannel channel, String[] values) {
+		try {
+			ByteBuffer out = ByteBuffer.allocate(64 * 1024);
+			Iterator<String> requests = values.length > 0
+				? Arrays.asList(values).iterator()
+				: new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)).lines().iterator();
+			while (requests.hasNext()) {
+				byte[] bytes = requests.next().getBytes(StandardCharsets.UTF_8);
+				if (bytes.length > MAX_FRAME_BYTES) {
+					throw new IOException("Request of " + bytes.length + " bytes exceeds " + MAX_FRAME_BYTES);
+				}
+				if (out.remaining() < 4 + bytes.length) {
+					flush(channel, out);
+					if (out.capacity() < 4 + bytes.length) {
+						out = ByteBuffer.allocate(4 + bytes.length);
+					}
+				}
+				out.putInt(bytes.length).put(bytes);
+			}
+			flush(channel, out);
+			// the daemon closes the connection once all requests are answered
+			channel.shutdownOutput();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static void flush(SocketChannel channel, ByteBuffer out) throws IOException {
+		out.flip();
+		while (out.hasRemaining()) {
+			channel.write(out);
+		}
+		out.clear();
+	}
+}
@@ -0,0 +1,263 @@
+package org.fipro.headless.app;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fipro.inverter.StringInverter;
+
+/**
+ * Daemon mode of the headless application. The framework stays alive and
+ * inversion requests are accepted on a Unix domain socket, so scripted callers
+ * only pay the startup cost once.
+ * <p>
+ * Requests and responses are frames of a 4 byte big-endian length followed by
+ * that many bytes of UTF-8 text. Responses are sent in the order of the
+ * requests, so a client can pipeline any number of requests on one
+ * connection, see {@link InverterClient}.
+ * <p>
+ * At most {@link #MAX_CONNECTIONS} connections are served at the same time,
+ * further clients wait in the backlog of the socket. The default socket is
+ * created in a directory that only the current user can access, and the
+ * socket file itself is only accessible by the owner.
+ * 
+ * <pre>
+ * -daemon [-socket &lt;path&gt;]
+ * </pre>
+ */
+class InverterDaemon implements AutoCloseable {
+
+	static final String DAEMON = "-daemon";
+
+	static final int MAX_CONNECTIONS = 16;
+
+	private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rw-------");
+
+	private final StringInverter inverter;
+	private final Path socketPath;
+	private final ServerSocketChannel server;
+	private final ExecutorService connections;
+	private final Semaphore permits = new Semaphore(MAX_CONNECTIONS);
+
+	InverterDaemon(StringInverter inverter, Path socketPath) throws IOException {
+		this.inverter = inverter;
+		this.socketPath = socketPath;
+		if (Files.exists(socketPath)) {
+			if (isListening(socketPath)) {
+				throw new IOException("Another daemon is listening on " + socketPath);
+			}
+			// a socket file left over from a crashed daemon blocks the bind
+			Files.delete(socketPath);
+		}
+		this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		this.server.bind(UnixDomainSocketAddress.of(socketPath));
+		if (isPosix()) {
+			Files.setPosixFilePermissions(socketPath, OWNER_ONLY);
+		}
+		AtomicInteger threadCount = new AtomicInteger();
+		this.connections = Executors.newFixedThreadPool(MAX_CONNECTIONS, r -> {
+			Thread thread = new Thread(r, "fipro-daemon-connection-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		// not a daemon thread, it keeps the JVM alive after the launcher returns
+		Thread acceptor = new Thread(this::accept, "fipro-daemon");
+		acceptor.start();
+	}
+
+	/**
+	 * @return <code>true</code> if the arguments request the daemon mode.
+	 */
+	static boolean isDaemon(String[] args) {
+		for (String arg : args) {
+			if (DAEMON.equals(arg)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Starts the daemon as configured by the given arguments.
+	 */
+	static InverterDaemon start(StringInverter inverter, String[] args) throws IOException {
+		Path socket = null;
+		for (int i = 0; i < args.length; i++) {
+			if ("-socket".equals(args[i])) {
+				if (i + 1 == args.length) {
+					throw new IllegalArgumentException("-socket requires a path");
+				}
+				socket = Path.of(args[++i]);
+			}
+		}
+		if (socket == null) {
+			socket = InverterClient.defaultSocket();
+			createPrivateDirectory(socket.getParent());
+		}
+		InverterDaemon daemon = new InverterDaemon(inverter, socket);
+		System.out.println("Listening on " + socket);
+		return daemon;
+	}
+
+	/**
+	 * Creates the directory accessible only by the current user, or checks
+	 * that an existing one is.
+	 */
+	static void createPrivateDirectory(Path directory) throws IOException {
+		if (!isPosix()) {
+			Files.createDirectories(directory);
+			return;
+		}
+		if (Files.notExists(directory)) {
+			Files.createDirectories(directory,
+					PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+			return;
+		}
+		PosixFileAttributes attributes = Files.readAttributes(directory, PosixFileAttributes.class);
+		if (!attributes.owner().getName().equals(System.getProperty("user.name"))) {
+			throw new IOException(directory + " is not owned by the current user");
+		}
+		for (PosixFilePermission permission : attributes.permissions()) {
+			if (permission.name().startsWith("GROUP") || permission.name().startsWith("OTHERS")) {
+				throw new IOException(directory + " is accessible by other users");
+			}
+		}
+	}
+
+	private static boolean isListening(Path socketPath) {
+		try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+			channel.connect(UnixDomainSocketAddress.of(socketPath));
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static boolean isPosix() {
+		return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+	}
+
+	private void accept() {
+		try {
+			while (true) {
+				// further clients wait in the backlog until a connection is closed
+				this.permits.acquire();
+				SocketChannel channel;
+				try {
+					channel = this.server.accept();
+				} catch (IOException e) {
+					this.permits.release();
+					throw e;
+				}
+				this.connections.execute(() -> {
+					try {
+						serve(channel);
+					} finally {
+						this.permits.release();
+					}
+				});
+			}
+		} catch (ClosedChannelException e) {
+			// closed by close()
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void serve(SocketChannel channel) {
+		ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+		ByteBuffer out = ByteBuffer.allocate(64 * 1024);
+		try (channel) {
+			while (true) {
+				if (channel.read(in) < 0) {
+					if (in.position() > 0) {
+						throw new EOFException("Connection closed within a frame");
+					}
+					return;
+				}
+				in.flip();
+				// answer all complete frames, pipelined requests are
+				// written back with as few writes as possible
+				while (in.remaining() >= 4) {
+					int length = in.getInt(in.position());
+					if (length < 0 || length > InverterClient.MAX_FRAME_BYTES) {
+						throw new IOException("Invalid frame length " + length);
+					}
+					if (in.remaining() < 4 + length) {
+						if (in.capacity() < 4 + length) {
+							in = grow(in, 4 + length);
+						}
+						break;
+					}
+					in.getInt();
+					String request = StandardCharsets.UTF_8.decode(in.slice(in.position(), length)).toString();
+					in.position(in.position() + length);
+					out = writeFrame(channel, out, this.inverter.invert(request));
+				}
+				in.compact();
+				if (out.position() > 0) {
+					flush(channel, out);
+					// measured when the first reply is sent, like in the other modes
+					StartupReport.inverted();
+				}
+			}
+		} catch (IOException e) {
+			// the client is gone or sent garbage, nothing to answer
+		}
+	}
+
+	private static ByteBuffer writeFrame(SocketChannel channel, ByteBuffer out, String response) throws IOException {
+		byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+		if (out.remaining() < 4 + bytes.length) {
+			flush(channel, out);
+			if (out.capacity() < 4 + bytes.length) {
+				out = ByteBuffer.allocate(4 + bytes.length);
+			}
+		}
+		out.putInt(bytes.length).put(bytes);
+		return out;
+	}
+
+	private static void flush(SocketChannel channel, ByteBuffer out) throws IOException {
+		out.flip();
+		while (out.hasRemaining()) {
+			channel.write(out);
+		}
+		out.clear();
+	}
+
+	private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+		// the buffer is in read mode, copy what is left of it
+		ByteBuffer grown = ByteBuffer.allocate(capacity);
+		grown.put(buffer);
+		grown.flip();
+		return grown;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.server.close();
+		this.connections.shutdownNow();
+		Files.deleteIfExists(this.socketPath);
+	}
+}
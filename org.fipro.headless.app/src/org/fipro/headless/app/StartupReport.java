@@ -0,0 +1,55 @@
+package org.fipro.headless.app;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.osgi.framework.BundleContext;
+
+/**
+ * Reports the time from the JVM start to the first inversion on stderr, if the
+ * system property <code>fipro.startup.report=true</code> is set. The report
+ * tells whether the framework was started cold or warm, i.e. with the
+ * framework storage of a previous run, which is detected via a marker in the
+ * data area of this bundle.
+ */
+final class StartupReport {
+
+	static final String PROPERTY = "fipro.startup.report";
+
+	private static final AtomicBoolean reported = new AtomicBoolean();
+	private static volatile boolean warm;
+
+	private StartupReport() {
+	}
+
+	/**
+	 * Checks and sets the warm start marker. Called when the starter is
+	 * activated.
+	 */
+	static void init(BundleContext context) {
+		File marker = context.getDataFile("warm-start");
+		if (marker == null) {
+			return;
+		}
+		warm = marker.exists();
+		if (!warm) {
+			try {
+				marker.createNewFile();
+			} catch (IOException e) {
+				// the report is still correct for this run
+			}
+		}
+	}
+
+	/**
+	 * Called after every inversion, only the first call reports.
+	 */
+	static void inverted() {
+		if (!reported.get() && reported.compareAndSet(false, true) && Boolean.getBoolean(PROPERTY)) {
+			long millis = ManagementFactory.getRuntimeMXBean().getUptime();
+			System.err.println("Time to first inversion: " + millis + " ms (" + (warm ? "warm" : "cold") + " start)");
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package org.fipro.inverter;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.osgi.util.promise.Promise;
+
+public interface AsyncStringInverter {
+
+	/**
+	 * @param input
+	 *            The value to invert.
+	 * @return A {@link Promise} that is resolved with the inverted value.
+	 */
+	Promise<String> invert(String input);
+
+	/**
+	 * @param inputs
+	 *            The values to invert.
+	 * @return A single {@link Promise} that is resolved with the inverted
+	 *         values in the iteration order of the given collection, once all
+	 *         of them are inverted.
+	 */
+	Promise<List<String>> invertAll(Collection<String> inputs);
+}
@@ -0,0 +1,21 @@
+package org.fipro.inverter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public interface FileInverter {
+
+	/**
+	 * Inverts the UTF-8 encoded content of the input file and writes the result
+	 * to the output file. An existing output file is overwritten.
+	 * 
+	 * @param input
+	 *            The file to invert.
+	 * @param output
+	 *            The file the inverted content is written to.
+	 * @throws IOException
+	 *             If the input can not be read or the output can not be
+	 *             written.
+	 */
+	void invert(Path input, Path output) throws IOException;
+}
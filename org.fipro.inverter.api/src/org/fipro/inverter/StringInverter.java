@@ -1,7 +1,63 @@
 package org.fipro.inverter;
 
+import java.io.IOException;
+import java.nio.CharBuffer;
+
 public interface StringInverter {
 	
 	String invert(String input);
-	
-}
\ No newline at end of file
+
+	/**
+	 * Inverts the given input and appends the result to the given output.
+	 * 
+	 * @param input
+	 *            The characters to invert.
+	 * @param output
+	 *            The {@link Appendable} the inverted characters are appended to.
+	 * @throws IOException
+	 *             If the output throws an {@link IOException}.
+	 */
+	default void invert(CharSequence input, Appendable output) throws IOException {
+		output.append(invert(input.toString()));
+	}
+
+	/**
+	 * Inverts the given input and puts the result into the given buffer,
+	 * starting at its current position.
+	 * 
+	 * @param input
+	 *            The characters to invert.
+	 * @param output
+	 *            The {@link CharBuffer} the inverted characters are put into.
+	 * @throws java.nio.BufferOverflowException
+	 *             If there is insufficient space in the output buffer.
+	 */
+	default void invert(CharSequence input, CharBuffer output) {
+		output.put(invert(input.toString()));
+	}
+
+	/**
+	 * Inverts the given range of the char array in place.
+	 * 
+	 * @param chars
+	 *            The char array to invert.
+	 * @param offset
+	 *            The index of the first char to invert.
+	 * @param length
+	 *            The number of chars to invert.
+	 */
+	default void invert(char[] chars, int offset, int length) {
+		String inverted = invert(new String(chars, offset, length));
+		inverted.getChars(0, length, chars, offset);
+	}
+
+	/**
+	 * Inverts the given char array in place.
+	 * 
+	 * @param chars
+	 *            The char array to invert.
+	 */
+	default void invert(char[] chars) {
+		invert(chars, 0, chars.length);
+	}
+}
@@ -0,0 +1,45 @@
+package org.fipro.inverter.benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * Creates reproducible benchmark inputs for the different character sets.
+ */
+public enum Inputs {
+
+	/** Printable ASCII characters. */
+	ASCII(0x20, 0x7F),
+	/** Latin-1 characters including the upper half, e.g. umlauts. */
+	LATIN1(0x20, 0x100),
+	/** Characters of the Basic Multilingual Plane, e.g. CJK. */
+	BMP(0x4E00, 0x9FFF),
+	/** Supplementary code points that are encoded as surrogate pairs. */
+	SUPPLEMENTARY(0x1F600, 0x1F64F);
+
+	private final int from;
+	private final int to;
+
+	Inputs(int from, int to) {
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * @param length
+	 *            The number of chars of the created input.
+	 * @return A random input of the given length, always the same for the same
+	 *         character set and length.
+	 */
+	public String create(int length) {
+		SplittableRandom random = new SplittableRandom(length);
+		StringBuilder builder = new StringBuilder(length);
+		while (builder.length() < length) {
+			int codePoint = random.nextInt(this.from, this.to);
+			if (Character.charCount(codePoint) > length - builder.length()) {
+				codePoint = 'x';
+			}
+			builder.appendCodePoint(codePoint);
+		}
+		return builder.toString();
+	}
+}
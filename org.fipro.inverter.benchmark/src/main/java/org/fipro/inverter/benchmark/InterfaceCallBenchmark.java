@@ -0,0 +1,66 @@
+package org.fipro.inverter.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.fipro.inverter.StringInverter;
+import org.fipro.inverter.provider.StringInverterImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a direct call on {@link StringInverterImpl} with calls through a
+ * {@link StringInverter} typed field, plain and volatile. No framework is
+ * started, so neither SCR nor the service registry is measured, only the
+ * interface dispatch and the field read.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class InterfaceCallBenchmark {
+
+	@Param({ "16", "1024" })
+	int size;
+
+	String input;
+
+	StringInverterImpl direct;
+
+	StringInverter field;
+
+	volatile StringInverter volatileField;
+
+	@Setup
+	public void setup() {
+		this.input = Inputs.ASCII.create(this.size);
+		this.direct = new StringInverterImpl();
+		this.field = new StringInverterImpl();
+		this.volatileField = new StringInverterImpl();
+	}
+
+	@Benchmark
+	public String directCall() {
+		return this.direct.invert(this.input);
+	}
+
+	@Benchmark
+	public String interfaceCall() {
+		return this.field.invert(this.input);
+	}
+
+	@Benchmark
+	public String volatileInterfaceCall() {
+		return this.volatileField.invert(this.input);
+	}
+}
@@ -0,0 +1,79 @@
+package org.fipro.inverter.benchmark;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.fipro.inverter.StringInverter;
+import org.fipro.inverter.provider.StringInverterImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link StringInverterImpl} service implementation across input
+ * sizes and character sets, for every overload of {@link StringInverter}. The
+ * calls go through the service interface, as they do in the consumers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class StringInverterBenchmark {
+
+	@Param({ "16", "1024", "65536" })
+	int size;
+
+	@Param({ "ASCII", "LATIN1", "BMP", "SUPPLEMENTARY" })
+	Inputs charset;
+
+	StringInverter inverter;
+	String input;
+	char[] chars;
+	CharBuffer buffer;
+	StringBuilder builder;
+
+	@Setup
+	public void setup() {
+		this.inverter = new StringInverterImpl();
+		this.input = this.charset.create(this.size);
+		this.chars = this.input.toCharArray();
+		this.buffer = CharBuffer.allocate(this.size);
+		this.builder = new StringBuilder(this.size);
+	}
+
+	@Benchmark
+	public String invertString() {
+		return this.inverter.invert(this.input);
+	}
+
+	@Benchmark
+	public StringBuilder invertIntoAppendable() throws IOException {
+		this.builder.setLength(0);
+		this.inverter.invert(this.input, this.builder);
+		return this.builder;
+	}
+
+	@Benchmark
+	public CharBuffer invertIntoCharBuffer() {
+		this.buffer.clear();
+		this.inverter.invert(this.input, this.buffer);
+		return this.buffer;
+	}
+
+	@Benchmark
+	public char[] invertCharArrayInPlace() {
+		this.inverter.invert(this.chars);
+		return this.chars;
+	}
+}
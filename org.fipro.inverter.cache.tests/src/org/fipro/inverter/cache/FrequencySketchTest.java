@@ -0,0 +1,50 @@
+package org.fipro.inverter.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class FrequencySketchTest {
+
+	@Test
+	public void shouldEstimateFrequency() {
+		FrequencySketch sketch = new FrequencySketch(1024);
+		for (int i = 0; i < 5; i++) {
+			sketch.increment("hot");
+		}
+		sketch.increment("cold");
+
+		assertEquals(5, sketch.frequency("hot"));
+		assertEquals(1, sketch.frequency("cold"));
+		assertEquals(0, sketch.frequency("unknown"));
+	}
+
+	@Test
+	public void shouldSaturateAtFifteen() {
+		FrequencySketch sketch = new FrequencySketch(1024);
+		for (int i = 0; i < 100; i++) {
+			sketch.increment("hot");
+		}
+		assertEquals(15, sketch.frequency("hot"));
+	}
+
+	@Test
+	public void shouldHalveCountersAfterSampleSize() {
+		// the counters are aged after 10 * maximumSize additions
+		FrequencySketch sketch = new FrequencySketch(1024);
+		for (int i = 0; i < 12; i++) {
+			sketch.increment("hot");
+		}
+		for (int i = 0; i < 10 * 1024 - 12 - 1; i++) {
+			sketch.increment(i);
+		}
+		int before = sketch.frequency("hot");
+
+		sketch.increment("trigger");
+
+		int after = sketch.frequency("hot");
+		assertTrue(before >= 12, "before aging: " + before);
+		assertEquals(before / 2, after);
+	}
+}
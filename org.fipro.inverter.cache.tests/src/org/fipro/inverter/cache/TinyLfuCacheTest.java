@@ -0,0 +1,127 @@
+package org.fipro.inverter.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class TinyLfuCacheTest {
+
+	@Test
+	public void shouldCountHitsAndMisses() {
+		TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, Long.MAX_VALUE, (k, v) -> 1);
+
+		assertNull(cache.get("Simpson"));
+		cache.put("Simpson", "nospmiS");
+
+		assertEquals("nospmiS", cache.get("Simpson"));
+		assertEquals(1, cache.hitCount());
+		assertEquals(1, cache.missCount());
+	}
+
+	@Test
+	public void shouldStayWithinMaximumEntries() {
+		TinyLfuCache<Integer, String> cache = new TinyLfuCache<>(100, Long.MAX_VALUE, (k, v) -> 1);
+		for (int i = 0; i < 1000; i++) {
+			cache.put(i, "value" + i);
+		}
+		assertEquals(100, cache.size());
+		assertEquals(900, cache.evictionCount());
+	}
+
+	@Test
+	public void shouldStayWithinMaximumWeight() {
+		TinyLfuCache<Integer, String> cache = new TinyLfuCache<>(100, 50, (k, v) -> 10);
+		for (int i = 0; i < 100; i++) {
+			cache.put(i, "value" + i);
+		}
+		assertEquals(5, cache.size());
+		assertEquals(50, cache.weight());
+	}
+
+	@Test
+	public void shouldNotCacheEntryHeavierThanMaximumWeight() {
+		TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, 50, (k, v) -> v.length());
+		cache.put("small", "x");
+		cache.put("large", "x".repeat(51));
+
+		assertNull(cache.get("large"));
+		assertEquals("x", cache.get("small"));
+	}
+
+	@Test
+	public void shouldKeepFrequentEntriesDuringScan() {
+		TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, Long.MAX_VALUE, (k, v) -> 1);
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 50; i++) {
+				request(cache, "hot" + i);
+			}
+		}
+
+		// a plain LRU would lose all hot entries to the one-time requests
+		for (int i = 0; i < 1000; i++) {
+			request(cache, "scan" + i);
+		}
+
+		int hot = 0;
+		for (int i = 0; i < 50; i++) {
+			if (cache.get("hot" + i) != null) {
+				hot++;
+			}
+		}
+		assertTrue(hot >= 45, "hot entries left: " + hot);
+	}
+
+	@Test
+	public void shouldAdmitCandidateRequestedMoreOftenThanVictim() {
+		TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, Long.MAX_VALUE, (k, v) -> 1);
+		for (int i = 0; i < 100; i++) {
+			request(cache, "cold" + i);
+		}
+		// requested often before it is added, e.g. while the delegate was slow
+		for (int i = 0; i < 5; i++) {
+			cache.get("popular");
+		}
+		cache.put("popular", "value");
+		// pushes the popular entry out of the admission window
+		request(cache, "cold100");
+
+		assertEquals("value", cache.get("popular"));
+		assertEquals(100, cache.size());
+	}
+
+	@Test
+	public void shouldEvictWhenMaximumIsReduced() {
+		TinyLfuCache<Integer, String> cache = new TinyLfuCache<>(100, Long.MAX_VALUE, (k, v) -> 1);
+		for (int i = 0; i < 100; i++) {
+			cache.put(i, "value" + i);
+		}
+
+		cache.setMaximum(10, Long.MAX_VALUE);
+
+		assertEquals(10, cache.size());
+	}
+
+	@Test
+	public void shouldClearAllEntries() {
+		TinyLfuCache<Integer, String> cache = new TinyLfuCache<>(100, Long.MAX_VALUE, (k, v) -> 1);
+		for (int i = 0; i < 100; i++) {
+			cache.put(i, "value" + i);
+		}
+
+		cache.clear();
+
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.weight());
+		assertNull(cache.get(1));
+		cache.put(1, "one");
+		assertEquals("one", cache.get(1));
+	}
+
+	private static void request(TinyLfuCache<String, String> cache, String key) {
+		if (cache.get(key) == null) {
+			cache.put(key, "value of " + key);
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package org.fipro.inverter.cache;
+
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+@Component(
+	property= {
+		"osgi.command.scope:String=fipro",
+		"osgi.command.function:String=cachestats"},
+	service=CacheStatsCommand.class
+)
+public class CacheStatsCommand {
+
+	@Reference
+	private CachingStringInverter cache;
+
+	public void cachestats() {
+		long hits = cache.getHitCount();
+		long misses = cache.getMissCount();
+		long requests = hits + misses;
+		System.out.println("entries:   " + cache.getSize() + " (" + cache.getWeight() + " bytes)");
+		System.out.println("hits:      " + hits);
+		System.out.println("misses:    " + misses);
+		System.out.println("evictions: " + cache.getEvictionCount());
+		System.out.println("hit rate:  " + (requests == 0 ? 0 : (100 * hits / requests)) + "%");
+	}
+}
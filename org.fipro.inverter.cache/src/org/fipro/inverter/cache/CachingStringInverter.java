@@ -0,0 +1,113 @@
+package org.fipro.inverter.cache;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+import org.fipro.inverter.StringInverter;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.propertytypes.ServiceRanking;
+
+/**
+ * {@link StringInverter} that caches the results of the wrapped
+ * {@link StringInverter}. It is registered with a higher ranking, so consumers
+ * that bind the highest ranked {@link StringInverter} use the cache without any
+ * modification.
+ * <p>
+ * Static references with the default reluctant policy keep the service they
+ * bound first. The inverter command, the servlets, the WebSocket endpoint and
+ * the {@code AsyncStringInverter} use greedy references and switch to the
+ * cache if it is registered after the wrapped service. The headless starters
+ * stay reluctant, they only use the cache if it is registered before they
+ * start.
+ */
+@Component(
+	configurationPid = "org.fipro.inverter.cache",
+	property = "fipro.inverter.cache=true",
+	service = { StringInverter.class, CachingStringInverter.class }
+)
+@ServiceRanking(10)
+public class CachingStringInverter implements StringInverter {
+
+	@interface CacheConfig {
+		int maxEntries() default 10_000;
+		long maxBytes() default 16 * 1024 * 1024;
+	}
+
+	// approximated heap usage of a cache entry besides the chars
+	private static final long ENTRY_OVERHEAD = 128;
+
+	@Reference(target = "(!(fipro.inverter.cache=true))")
+	private StringInverter delegate;
+
+	private TinyLfuCache<String, String> cache;
+
+	@Activate
+	void activate(CacheConfig config) {
+		this.cache = new TinyLfuCache<>(
+				config.maxEntries(), 
+				config.maxBytes(), 
+				(input, output) -> ENTRY_OVERHEAD + 2L * (input.length() + output.length()));
+	}
+
+	@Modified
+	void modified(CacheConfig config) {
+		this.cache.setMaximum(config.maxEntries(), config.maxBytes());
+	}
+
+	@Deactivate
+	void deactivate() {
+		this.cache.clear();
+	}
+
+	@Override
+	public String invert(String input) {
+		String result = this.cache.get(input);
+		if (result == null) {
+			result = this.delegate.invert(input);
+			this.cache.put(input, result);
+		}
+		return result;
+	}
+
+	// the streaming variants are allocation-free in the delegate, 
+	// looking them up in the cache would require a String copy
+
+	@Override
+	public void invert(CharSequence input, Appendable output) throws IOException {
+		this.delegate.invert(input, output);
+	}
+
+	@Override
+	public void invert(CharSequence input, CharBuffer output) {
+		this.delegate.invert(input, output);
+	}
+
+	@Override
+	public void invert(char[] chars, int offset, int length) {
+		this.delegate.invert(chars, offset, length);
+	}
+
+	public long getHitCount() {
+		return this.cache.hitCount();
+	}
+
+	public long getMissCount() {
+		return this.cache.missCount();
+	}
+
+	public long getEvictionCount() {
+		return this.cache.evictionCount();
+	}
+
+	public int getSize() {
+		return this.cache.size();
+	}
+
+	public long getWeight() {
+		return this.cache.weight();
+	}
+}
@@ -0,0 +1,286 @@
+package org.fipro.inverter.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * A bounded concurrent cache with a W-TinyLFU eviction policy.
+ * <p>
+ * New entries are added to a small LRU admission window. Entries leaving the
+ * window compete with the least recently used entry of the main segmented LRU,
+ * and only the one that was requested more often according to a
+ * {@link FrequencySketch} is kept. The cache is bounded by the number of
+ * entries and by the sum of the entry weights.
+ * <p>
+ * Lookups are lock-free. The bookkeeping of a read is skipped if the policy
+ * lock is contended, as losing some access information is cheaper than
+ * serializing the readers.
+ */
+final class TinyLfuCache<K, V> {
+
+	private static final byte WINDOW = 0;
+	private static final byte PROBATION = 1;
+	private static final byte PROTECTED = 2;
+
+	private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+	private final ReentrantLock policyLock = new ReentrantLock();
+	private final ToLongBiFunction<K, V> weigher;
+
+	private final AccessOrderDeque<K, V> window = new AccessOrderDeque<>();
+	private final AccessOrderDeque<K, V> probation = new AccessOrderDeque<>();
+	private final AccessOrderDeque<K, V> protectedQueue = new AccessOrderDeque<>();
+	private final FrequencySketch sketch;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	private int maximumEntries;
+	private long maximumWeight;
+	private int windowMaximum;
+	private int protectedMaximum;
+	private long weight;
+
+	TinyLfuCache(int maximumEntries, long maximumWeight, ToLongBiFunction<K, V> weigher) {
+		this.weigher = weigher;
+		this.sketch = new FrequencySketch(maximumEntries);
+		setMaximum(maximumEntries, maximumWeight);
+	}
+
+	/**
+	 * Changes the bounds of the cache and evicts entries if necessary.
+	 */
+	void setMaximum(int maximumEntries, long maximumWeight) {
+		this.policyLock.lock();
+		try {
+			this.maximumEntries = Math.max(1, maximumEntries);
+			this.maximumWeight = Math.max(1, maximumWeight);
+			this.windowMaximum = Math.max(1, this.maximumEntries / 100);
+			this.protectedMaximum = (int) (0.8 * (this.maximumEntries - this.windowMaximum));
+			this.sketch.ensureCapacity(this.maximumEntries);
+			evict();
+		} finally {
+			this.policyLock.unlock();
+		}
+	}
+
+	V get(K key) {
+		Node<K, V> node = this.data.get(key);
+		if (node == null) {
+			this.misses.increment();
+			if (this.policyLock.tryLock()) {
+				try {
+					this.sketch.increment(key);
+				} finally {
+					this.policyLock.unlock();
+				}
+			}
+			return null;
+		}
+		this.hits.increment();
+		if (this.policyLock.tryLock()) {
+			try {
+				this.sketch.increment(key);
+				onAccess(node);
+			} finally {
+				this.policyLock.unlock();
+			}
+		}
+		return node.value;
+	}
+
+	void put(K key, V value) {
+		long nodeWeight = this.weigher.applyAsLong(key, value);
+		this.policyLock.lock();
+		try {
+			if (nodeWeight > this.maximumWeight) {
+				// would evict everything else, so don't cache it at all
+				return;
+			}
+			Node<K, V> node = new Node<>(key, value, nodeWeight);
+			Node<K, V> previous = this.data.put(key, node);
+			if (previous != null) {
+				queueOf(previous).remove(previous);
+				this.weight -= previous.weight;
+			}
+			node.queue = WINDOW;
+			this.window.addLast(node);
+			this.weight += nodeWeight;
+			evict();
+		} finally {
+			this.policyLock.unlock();
+		}
+	}
+
+	void clear() {
+		this.policyLock.lock();
+		try {
+			this.data.clear();
+			this.window.clear();
+			this.probation.clear();
+			this.protectedQueue.clear();
+			this.weight = 0;
+		} finally {
+			this.policyLock.unlock();
+		}
+	}
+
+	int size() {
+		return this.data.size();
+	}
+
+	long weight() {
+		return this.weight;
+	}
+
+	long hitCount() {
+		return this.hits.sum();
+	}
+
+	long missCount() {
+		return this.misses.sum();
+	}
+
+	long evictionCount() {
+		return this.evictions.sum();
+	}
+
+	private void onAccess(Node<K, V> node) {
+		if (this.data.get(node.key) != node) {
+			// removed concurrently
+			return;
+		}
+		switch (node.queue) {
+		case WINDOW:
+			this.window.moveToBack(node);
+			break;
+		case PROBATION:
+			this.probation.remove(node);
+			node.queue = PROTECTED;
+			this.protectedQueue.addLast(node);
+			if (this.protectedQueue.size > this.protectedMaximum) {
+				Node<K, V> demoted = this.protectedQueue.removeFirst();
+				demoted.queue = PROBATION;
+				this.probation.addLast(demoted);
+			}
+			break;
+		default:
+			this.protectedQueue.moveToBack(node);
+		}
+	}
+
+	private void evict() {
+		// entries leaving the admission window become candidates in probation
+		while (this.window.size > this.windowMaximum) {
+			Node<K, V> candidate = this.window.removeFirst();
+			candidate.queue = PROBATION;
+			this.probation.addLast(candidate);
+		}
+
+		while (this.data.size() > this.maximumEntries || this.weight > this.maximumWeight) {
+			Node<K, V> victim = this.probation.head;
+			Node<K, V> candidate = this.probation.tail;
+			if (victim == null) {
+				victim = (this.protectedQueue.head != null) ? this.protectedQueue.head : this.window.head;
+				evict(victim);
+			} else if (victim == candidate) {
+				evict(victim);
+			} else if (this.sketch.frequency(candidate.key) > this.sketch.frequency(victim.key)) {
+				evict(victim);
+			} else {
+				evict(candidate);
+			}
+		}
+	}
+
+	private void evict(Node<K, V> node) {
+		queueOf(node).remove(node);
+		this.data.remove(node.key, node);
+		this.weight -= node.weight;
+		this.evictions.increment();
+	}
+
+	private AccessOrderDeque<K, V> queueOf(Node<K, V> node) {
+		switch (node.queue) {
+		case WINDOW:
+			return this.window;
+		case PROBATION:
+			return this.probation;
+		default:
+			return this.protectedQueue;
+		}
+	}
+
+	private static final class Node<K, V> {
+		final K key;
+		final V value;
+		final long weight;
+		byte queue;
+		Node<K, V> prev;
+		Node<K, V> next;
+
+		Node(K key, V value, long weight) {
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * Intrusive doubly linked list of nodes, least recently used first.
+	 */
+	private static final class AccessOrderDeque<K, V> {
+		Node<K, V> head;
+		Node<K, V> tail;
+		int size;
+
+		void addLast(Node<K, V> node) {
+			node.prev = this.tail;
+			node.next = null;
+			if (this.tail == null) {
+				this.head = node;
+			} else {
+				this.tail.next = node;
+			}
+			this.tail = node;
+			this.size++;
+		}
+
+		Node<K, V> removeFirst() {
+			Node<K, V> node = this.head;
+			remove(node);
+			return node;
+		}
+
+		void remove(Node<K, V> node) {
+			if (node.prev == null) {
+				this.head = node.next;
+			} else {
+				node.prev.next = node.next;
+			}
+			if (node.next == null) {
+				this.tail = node.prev;
+			} else {
+				node.next.prev = node.prev;
+			}
+			node.prev = null;
+			node.next = null;
+			this.size--;
+		}
+
+		void moveToBack(Node<K, V> node) {
+			if (node != this.tail) {
+				remove(node);
+				addLast(node);
+			}
+		}
+
+		void clear() {
+			this.head = null;
+			this.tail = null;
+			this.size = 0;
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package org.fipro.inverter.command;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.fipro.inverter.FileInverter;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+@Component(
+	property= {
+		"osgi.command.scope:String=fipro",
+		"osgi.command.function:String=invertfile"},
+	service=FileInverterCommand.class
+)
+public class FileInverterCommand {
+
+	@Reference
+	private FileInverter inverter;
+
+	public void invertfile(String input, String output) throws IOException {
+		inverter.invert(Paths.get(input), Paths.get(output));
+		System.out.println("Inverted " + input + " to " + output);
+	}
+}
@@ -3,6 +3,7 @@ package org.fipro.inverter.command;
 import org.fipro.inverter.StringInverter;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
 
 @Component(
 	property= {
@@ -12,7 +13,8 @@ import org.osgi.service.component.annotations.Reference;
 )
 public class StringInverterCommand {
 
-	@Reference
+	// greedy, so a higher ranked StringInverter like the cache is picked up
+	@Reference(policyOption = ReferencePolicyOption.GREEDY)
 	private StringInverter inverter;
 	
 	public void invert(String input) {
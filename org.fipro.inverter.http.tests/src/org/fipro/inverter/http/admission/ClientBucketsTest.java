@@ -0,0 +1,43 @@
+package org.fipro.inverter.http.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+public class ClientBucketsTest {
+
+    @Test
+    public void shouldNotGrowBeyondMaxClients() {
+        ClientBuckets buckets = new ClientBuckets();
+        buckets.setMaxClients(160);
+        for (int i = 0; i < 100_000; i++) {
+            buckets.get("10.0." + (i >> 8) + "." + (i & 0xff), 10, 0);
+        }
+        assertEquals(160, buckets.size());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlySeenClient() {
+        ClientBuckets buckets = new ClientBuckets();
+        // one client per stripe
+        buckets.setMaxClients(1);
+        TokenBucket first = buckets.get("client", 10, 0);
+        assertSame(first, buckets.get("client", 10, 0));
+
+        String other = clientInSameStripe("client");
+        buckets.get(other, 10, 0);
+
+        assertNotSame(first, buckets.get("client", 10, 0));
+    }
+
+    private static String clientInSameStripe(String client) {
+        for (int i = 0;; i++) {
+            String candidate = "other" + i;
+            if ((candidate.hashCode() & 0x7fffffff) % 16 == (client.hashCode() & 0x7fffffff) % 16) {
+                return candidate;
+            }
+        }
+    }
+}
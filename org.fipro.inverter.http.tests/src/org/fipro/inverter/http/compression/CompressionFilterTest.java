@@ -0,0 +1,244 @@
+package org.fipro.inverter.http.compression;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class CompressionFilterTest {
+
+    private static final String RESULT_ATTRIBUTE = "result";
+
+    private static Server server;
+    private static ExecutorService executor;
+    private static String baseUrl;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        executor = Executors.newFixedThreadPool(8);
+
+        CompressionFilter filter = new CompressionFilter();
+        filter.activate(defaults(CompressionFilter.CompressionConfig.class));
+
+        ServletContextHandler context = new ServletContextHandler();
+        FilterHolder filterHolder = new FilterHolder(filter);
+        filterHolder.setAsyncSupported(true);
+        context.addFilter(filterHolder, "/*", EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC));
+        addServlet(context, new SyncServlet(), "/sync");
+        addServlet(context, new AsyncServlet(), "/async");
+        addServlet(context, new DispatchServlet(), "/dispatch");
+
+        server = new Server(new InetSocketAddress("127.0.0.1", 0));
+        server.setHandler(context);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    }
+
+    @AfterAll
+    static void stopServer() throws Exception {
+        server.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldCompressSynchronousResponse() throws IOException {
+        Response response = get("/sync?size=100000");
+        assertEquals("gzip", response.encoding);
+        assertEquals(body(100000), response.body);
+    }
+
+    @Test
+    public void shouldNotCompressSmallResponse() throws IOException {
+        Response response = get("/sync?size=100");
+        assertNull(response.encoding);
+        assertEquals("100", response.length);
+        assertEquals(body(100), response.body);
+    }
+
+    @Test
+    public void shouldNotCompressSmallAsynchronousResponse() throws IOException {
+        Response response = get("/async?size=100");
+        assertNull(response.encoding);
+        assertEquals(body(100), response.body);
+    }
+
+    @Test
+    public void shouldCompressAsynchronousResponseOnComplete() throws IOException {
+        Response response = get("/async?size=100000");
+        assertEquals("gzip", response.encoding);
+        assertEquals(body(100000), response.body);
+    }
+
+    @Test
+    public void shouldCompressBodyWrittenInRequestAndAsyncDispatch() throws IOException {
+        Response response = get("/dispatch?size=100000");
+        assertEquals("gzip", response.encoding);
+        assertEquals("<head>" + body(100000) + "<tail>", response.body);
+    }
+
+    @Test
+    public void shouldCompressConcurrentAsynchronousResponses() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                int size = 500 + 997 * i;
+                results.add(clients.submit(() -> {
+                    Response response = get("/async?size=" + size);
+                    assertEquals(body(size), response.body);
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private static void addServlet(ServletContextHandler context, HttpServlet servlet, String path) {
+        ServletHolder holder = new ServletHolder(servlet);
+        holder.setAsyncSupported(true);
+        context.addServlet(holder, path);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <A> A defaults(Class<A> type) {
+        return (A) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+            (proxy, method, args) -> method.getDefaultValue());
+    }
+
+    private static String body(int size) {
+        StringBuilder builder = new StringBuilder(size);
+        for (int i = 0; i < size; i++) {
+            builder.append((char) ('a' + (i * 7 + i / 13) % 26));
+        }
+        return builder.toString();
+    }
+
+    private static void write(HttpServletResponse resp, int size) throws IOException {
+        PrintWriter writer = resp.getWriter();
+        String body = body(size);
+        // several writes, so the threshold is crossed in between
+        for (int i = 0; i < size; i += 700) {
+            writer.write(body, i, Math.min(700, size - i));
+        }
+    }
+
+    private static Response get(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        try {
+            assertEquals(200, connection.getResponseCode());
+            Response response = new Response();
+            response.encoding = connection.getHeaderField("Content-Encoding");
+            response.length = connection.getHeaderField("Content-Length");
+            InputStream in = connection.getInputStream();
+            if ("gzip".equals(response.encoding)) {
+                in = new GZIPInputStream(in);
+            }
+            try (InputStream body = in) {
+                response.body = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            return response;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static class Response {
+        String encoding;
+        String length;
+        String body;
+    }
+
+    private static class SyncServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            resp.setContentType("text/plain");
+            write(resp, Integer.parseInt(req.getParameter("size")));
+        }
+    }
+
+    /**
+     * Writes on another thread and completes without closing the writer.
+     */
+    private static class AsyncServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            int size = Integer.parseInt(req.getParameter("size"));
+            resp.setContentType("text/plain");
+            AsyncContext async = req.startAsync();
+            executor.execute(() -> {
+                try {
+                    write(resp, size);
+                } catch (IOException e) {
+                    // the assertion in the client fails
+                } finally {
+                    async.complete();
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes a part of the body in the initial request and the rest in the
+     * ASYNC dispatch, like the SimpleServletFilter and the InverterServlet.
+     */
+    private static class DispatchServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            if (req.getDispatcherType() == DispatcherType.REQUEST) {
+                resp.setContentType("text/plain");
+                resp.getWriter().write("<head>");
+                AsyncContext async = req.startAsync();
+                executor.execute(() -> {
+                    async.getRequest().setAttribute(RESULT_ATTRIBUTE, body(Integer.parseInt(req.getParameter("size"))));
+                    async.dispatch();
+                });
+                return;
+            }
+            resp.getWriter().write((String) req.getAttribute(RESULT_ATTRIBUTE));
+            resp.getWriter().write("<tail>");
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package org.fipro.inverter.http.eclipse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ResourceCacheTest {
+
+    private static final Map<String, String> CONTENT = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicInteger> REQUESTS = new ConcurrentHashMap<>();
+
+    private static Server server;
+    private static String origin;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void startOrigin() throws Exception {
+        ServletContextHandler context = new ServletContextHandler();
+        context.addServlet(new ServletHolder(new OriginServlet()), "/*");
+
+        server = new Server(new InetSocketAddress("127.0.0.1", 0));
+        server.setHandler(context);
+        server.start();
+        origin = "http://127.0.0.1:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort() + "/";
+    }
+
+    @AfterAll
+    static void stopOrigin() throws Exception {
+        server.stop();
+    }
+
+    @BeforeEach
+    void resetOrigin() {
+        CONTENT.clear();
+        REQUESTS.clear();
+    }
+
+    @Test
+    public void shouldServeHitWithoutAskingOrigin() throws IOException {
+        CONTENT.put("a.txt", "alpha");
+        ResourceCache cache = cache(Map.of());
+
+        assertEquals("alpha", read(cache.getResource("a.txt")));
+        assertEquals("alpha", read(cache.getResource("a.txt")));
+        assertEquals(1, requests("a.txt"));
+    }
+
+    @Test
+    public void shouldServeHitFromDisk() throws IOException {
+        CONTENT.put("a.txt", "alpha");
+        ResourceCache cache = cache(Map.of("memoryEntryMaxBytes", 0));
+
+        URL url = cache.getResource("a.txt");
+        assertEquals("file", url.getProtocol());
+        assertEquals("alpha", read(url));
+        assertEquals("alpha", read(cache.getResource("a.txt")));
+        assertEquals(1, requests("a.txt"));
+    }
+
+    @Test
+    public void shouldRememberMissForNegativeTtl() {
+        ResourceCache cache = cache(Map.of());
+
+        assertNull(cache.getResource("missing.txt"));
+        assertNull(cache.getResource("missing.txt"));
+        assertEquals(1, requests("missing.txt"));
+    }
+
+    @Test
+    public void shouldAskOriginAgainWithoutNegativeTtl() {
+        ResourceCache cache = cache(Map.of("negativeTtlSeconds", 0L));
+
+        assertNull(cache.getResource("missing.txt"));
+        assertNull(cache.getResource("missing.txt"));
+        assertEquals(2, requests("missing.txt"));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedFileFromDisk() throws IOException {
+        CONTENT.put("a.txt", "a".repeat(1000));
+        CONTENT.put("b.txt", "b".repeat(1000));
+        CONTENT.put("c.txt", "c".repeat(1000));
+        ResourceCache cache = cache(Map.of("memoryEntryMaxBytes", 0, "diskMaxBytes", 2500L));
+
+        cache.getResource("a.txt");
+        cache.getResource("b.txt");
+        // a is used more recently than b
+        cache.getResource("a.txt");
+        cache.getResource("c.txt");
+
+        assertEquals(2, files());
+        assertEquals("a".repeat(1000), read(cache.getResource("a.txt")));
+        assertEquals(1, requests("a.txt"));
+        assertEquals("b".repeat(1000), read(cache.getResource("b.txt")));
+        assertEquals(2, requests("b.txt"));
+        assertEquals(2, files());
+    }
+
+    @Test
+    public void shouldDeleteReplacedContent() throws IOException {
+        CONTENT.put("a.txt", "first");
+        ResourceCache cache = cache(Map.of("ttlSeconds", 0L));
+
+        assertEquals("first", read(cache.getResource("a.txt")));
+        CONTENT.put("a.txt", "second");
+        sleep(5);
+        assertEquals("second", read(cache.getResource("a.txt")));
+        assertEquals(1, files());
+    }
+
+    @Test
+    public void shouldDeleteStaleFilesOnActivate() throws IOException {
+        Path stale = Files.writeString(this.directory.resolve("0".repeat(64)), "stale");
+        Path foreign = Files.writeString(this.directory.resolve("readme.txt"), "foreign");
+
+        cache(Map.of());
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(foreign));
+    }
+
+    @Test
+    public void shouldUsePrivateTemporaryDirectoryByDefault() throws IOException {
+        CONTENT.put("a.txt", "first");
+        ResourceCache cache = cache(Map.of("directory", ""));
+        Path directory = cache.getDirectory();
+
+        assertEquals("first", read(cache.getResource("a.txt")));
+        assertFalse(directory.startsWith(this.directory));
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(directory)));
+        }
+
+        cache.deactivate();
+
+        assertFalse(Files.exists(directory));
+    }
+
+    @Test
+    public void shouldFetchConcurrentRequestsOnce() throws Exception {
+        CONTENT.put("slow.txt", "slow");
+        ResourceCache cache = cache(Map.of());
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<URL>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(clients.submit(() -> cache.getResource("slow.txt")));
+            }
+            for (Future<URL> result : results) {
+                assertNotNull(result.get());
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        assertEquals(1, requests("slow.txt"));
+    }
+
+    private ResourceCache cache(Map<String, Object> overrides) {
+        ResourceCache cache = new ResourceCache();
+        try {
+            cache.activate(config(overrides));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return cache;
+    }
+
+    private ResourceCache.CacheConfig config(Map<String, Object> overrides) {
+        return (ResourceCache.CacheConfig) Proxy.newProxyInstance(
+            ResourceCache.CacheConfig.class.getClassLoader(),
+            new Class<?>[] { ResourceCache.CacheConfig.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "origin":
+                        return origin;
+                    case "directory":
+                        return overrides.getOrDefault("directory", this.directory.toString());
+                    default:
+                        return overrides.getOrDefault(method.getName(), method.getDefaultValue());
+                }
+            });
+    }
+
+    private long files() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.count();
+        }
+    }
+
+    private static int requests(String name) {
+        AtomicInteger count = REQUESTS.get(name);
+        return (count != null) ? count.get() : 0;
+    }
+
+    private static String read(URL url) throws IOException {
+        try (InputStream in = url.openStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The origin stub, counts the requests per resource. The slow resource
+     * keeps the fetch open long enough for the concurrent requests to meet.
+     */
+    private static class OriginServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            String name = req.getPathInfo().substring(1);
+            REQUESTS.computeIfAbsent(name, n -> new AtomicInteger()).incrementAndGet();
+            if (name.startsWith("slow")) {
+                sleep(200);
+            }
+            String content = CONTENT.get(name);
+            if (content == null) {
+                resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            resp.setContentType("text/plain");
+            resp.getOutputStream().write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
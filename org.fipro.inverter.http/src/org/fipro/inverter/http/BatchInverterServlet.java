@@ -0,0 +1,112 @@
+package org.fipro.inverter.http;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParserFactory;
+import jakarta.json.stream.JsonParsingException;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.Servlet;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.fipro.inverter.StringInverter;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.osgi.service.component.annotations.ServiceScope;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardServletAsyncSupported;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardServletPattern;
+
+/**
+ * Inverts a JSON array of strings and answers with a JSON array of the results.
+ * The request is parsed and the response is written event by event, so no
+ * intermediate tree is created, regardless of the size of the batch.
+ */
+@Component(
+    service=Servlet.class,
+    scope=ServiceScope.PROTOTYPE)
+@HttpWhiteboardServletPattern("/invert/batch")
+@HttpWhiteboardServletAsyncSupported
+public class BatchInverterServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    // looking up the JSON provider is expensive, so only do it once
+    private static final JsonParserFactory PARSER_FACTORY = Json.createParserFactory(null);
+    private static final JsonGeneratorFactory GENERATOR_FACTORY = Json.createGeneratorFactory(null);
+
+    // greedy like InverterServlet, so /invert/batch is cached the same way
+    @Reference(policyOption = ReferencePolicyOption.GREEDY)
+    private StringInverter inverter;
+
+    @Reference
+    private RequestExecutor executor;
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+
+        AsyncContext async = req.startAsync();
+        executor.execute(() -> {
+            try {
+                invertBatch(req, resp);
+            } catch (IOException | RuntimeException e) {
+                InverterServlet.sendError(resp, e);
+            } finally {
+                async.complete();
+            }
+        });
+    }
+
+    private void invertBatch(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (req.getCharacterEncoding() == null) {
+            req.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        }
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        JsonParser parser = PARSER_FACTORY.createParser(req.getReader());
+        try {
+            if (!parser.hasNext() || parser.next() != JsonParser.Event.START_ARRAY) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Expected a JSON array of strings");
+                return;
+            }
+
+            JsonGenerator generator = GENERATOR_FACTORY.createGenerator(resp.getWriter());
+            generator.writeStartArray();
+            while (parser.hasNext()) {
+                JsonParser.Event event = parser.next();
+                if (event == JsonParser.Event.VALUE_STRING) {
+                    generator.write(inverter.invert(parser.getString()));
+                } else if (event == JsonParser.Event.END_ARRAY) {
+                    break;
+                } else {
+                    throw new JsonParsingException("Expected a string but found " + event, parser.getLocation());
+                }
+            }
+            generator.writeEnd();
+            // closing the generator closes the response writer, which also
+            // finishes a compressed response before the request completes
+            generator.close();
+        } catch (JsonException e) {
+            // also covers truncated bodies, which are no JsonParsingException
+            if (resp.isCommitted()) {
+                // parts of the result were already sent, nothing left to report
+                throw e;
+            }
+            resp.reset();
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        } finally {
+            parser.close();
+        }
+    }
+
+}
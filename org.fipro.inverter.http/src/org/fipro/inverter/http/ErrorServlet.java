@@ -10,12 +10,14 @@ import jakarta.servlet.http.HttpServletResponse;
 
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.ServiceScope;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardServletAsyncSupported;
 import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardServletErrorPage;
 
 @Component(
     service=Servlet.class,
     scope=ServiceScope.PROTOTYPE)
 @HttpWhiteboardServletErrorPage(errorPage = { "java.lang.IllegalArgumentException" , "500"} )
+@HttpWhiteboardServletAsyncSupported
 public class ErrorServlet extends HttpServlet {
 
     private static final long serialVersionUID = 1L;
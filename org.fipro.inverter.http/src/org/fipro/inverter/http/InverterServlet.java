@@ -1,44 +1,215 @@
 package org.fipro.inverter.http;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
 
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.Servlet;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import org.fipro.inverter.FileInverter;
 import org.fipro.inverter.StringInverter;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
 import org.osgi.service.component.annotations.ServiceScope;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardServletAsyncSupported;
 import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardServletPattern;
 
 @Component(
     service=Servlet.class,
+    configurationPid = "org.fipro.inverter.http.invert",
     scope=ServiceScope.PROTOTYPE)
 @HttpWhiteboardServletPattern("/invert")
+@HttpWhiteboardServletAsyncSupported
 public class InverterServlet extends HttpServlet {
 
     private static final long serialVersionUID = 1L;
 
-    @Reference
+    private static final String RESULT_ATTRIBUTE = InverterServlet.class.getName() + ".result";
+
+    // change if the rendered result changes, so cached responses get invalid
+    private static final long REPRESENTATION_VERSION = 1;
+
+    @interface InverterServletConfig {
+        /**
+         * The Cache-Control header sent with GET results, empty to send none.
+         */
+        String cacheControl() default "public, max-age=86400";
+    }
+
+    private volatile String cacheControl;
+
+    // greedy, so a higher ranked StringInverter like the cache is picked up
+    @Reference(policyOption = ReferencePolicyOption.GREEDY)
     private StringInverter inverter;
 
+    @Reference
+    private FileInverter fileInverter;
+
+    @Reference
+    private RequestExecutor executor;
+
+    @Activate
+    @Modified
+    void configure(InverterServletConfig config) {
+        this.cacheControl = config.cacheControl();
+    }
+
+    /**
+     * Inverts the <code>value</code> parameter on the {@link RequestExecutor}
+     * and dispatches back to the container to render the result. That way
+     * filters that decorate the output see the result in the same order as
+     * with synchronous processing.
+     * <p>
+     * The result only depends on the input, so the ETag is a hash of the
+     * <code>value</code> parameter and a matching <code>If-None-Match</code>
+     * is answered with <code>304 Not Modified</code> without inverting at
+     * all. The ETag is weak, as the bytes differ if the response is
+     * compressed.
+     */
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
 
-        String input = req.getParameter("value");
-        if (input == null) {
-            throw new IllegalArgumentException("input can not be null");
+        Object result = req.getAttribute(RESULT_ATTRIBUTE);
+        if (result == null) {
+            String input = req.getParameter("value");
+            if (input == null) {
+                throw new IllegalArgumentException("input can not be null");
+            }
+
+            String etag = etag(input);
+            resp.setHeader("ETag", "W/" + etag);
+            String cacheControl = this.cacheControl;
+            if (!cacheControl.isEmpty()) {
+                resp.setHeader("Cache-Control", cacheControl);
+            }
+            if (StaticResourceServlet.matches(req.getHeader("If-None-Match"), etag)) {
+                // drop what decorating filters have written so far
+                resp.resetBuffer();
+                resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+
+            AsyncContext async = req.startAsync();
+            executor.execute(() -> {
+                try {
+                    async.getRequest().setAttribute(RESULT_ATTRIBUTE, inverter.invert(input));
+                } catch (RuntimeException e) {
+                    async.getRequest().setAttribute(RESULT_ATTRIBUTE, e);
+                }
+                async.dispatch();
+            });
+            return;
         }
-        
-        String output = inverter.invert(input);
+
+        if (result instanceof RuntimeException) {
+            throw (RuntimeException) result;
+        }
+        String output = (String) result;
 
         resp.setContentType("text/html");
         resp.getWriter().write(
             "<html><body>Result is " + output + "</body></html>");
     }
 
-}
\ No newline at end of file
+    /**
+     * Inverts the request body and streams the result back as plain text
+     * without a content length, so it is sent with chunked transfer encoding.
+     * By default every line is inverted separately. With <code>mode=full</code>
+     * the whole body is inverted, using temporary files to keep the memory
+     * usage bounded.
+     */
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+
+        if (req.getCharacterEncoding() == null) {
+            req.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        }
+        resp.setContentType("text/plain");
+        resp.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        boolean full = "full".equals(req.getParameter("mode"));
+        AsyncContext async = req.startAsync();
+        executor.execute(() -> {
+            try {
+                if (full) {
+                    invertFull(req, resp);
+                } else {
+                    invertLines(req, resp);
+                }
+            } catch (IOException | RuntimeException e) {
+                sendError(resp, e);
+            } finally {
+                async.complete();
+            }
+        });
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the input as quoted entity tag.
+     */
+    static String etag(String input) {
+        long hash = 0xcbf29ce484222325L ^ REPRESENTATION_VERSION;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            hash = (hash ^ (c & 0xff)) * 0x100000001b3L;
+            hash = (hash ^ (c >>> 8)) * 0x100000001b3L;
+        }
+        return "\"" + HexFormat.of().toHexDigits(hash) + "\"";
+    }
+
+    static void sendError(HttpServletResponse resp, Exception e) {
+        if (!resp.isCommitted()) {
+            try {
+                resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+            } catch (IOException ignored) {
+                // the client is gone
+            }
+        }
+    }
+
+    private void invertLines(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        BufferedReader reader = req.getReader();
+        PrintWriter writer = resp.getWriter();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            inverter.invert(line, writer);
+            writer.write('\n');
+        }
+        writer.close();
+    }
+
+    private void invertFull(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        Path input = Files.createTempFile("fipro-invert-in", ".txt");
+        Path output = Files.createTempFile("fipro-invert-out", ".txt");
+        try {
+            // spill the body to disk, the FileInverter expects UTF-8
+            try (Writer writer = Files.newBufferedWriter(input, StandardCharsets.UTF_8)) {
+                req.getReader().transferTo(writer);
+            }
+            fileInverter.invert(input, output);
+            try (OutputStream out = resp.getOutputStream()) {
+                Files.copy(output, out);
+            }
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+
+}
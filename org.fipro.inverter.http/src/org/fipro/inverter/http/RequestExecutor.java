@@ -0,0 +1,75 @@
+package org.fipro.inverter.http;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+
+/**
+ * {@link Executor} the servlets hand their work to after starting async
+ * processing, so the Jetty request threads are released while a request is
+ * processed.
+ */
+@Component(
+    configurationPid = "org.fipro.inverter.http.executor",
+    service = RequestExecutor.class)
+public class RequestExecutor implements Executor {
+
+    @interface ExecutorConfig {
+        /**
+         * Use a virtual thread per task if the runtime supports it (Java 21+).
+         */
+        boolean virtualThreads() default true;
+
+        /**
+         * The number of platform threads if virtual threads are not used, 0
+         * for twice the number of available processors.
+         */
+        int threads() default 0;
+    }
+
+    private ExecutorService executor;
+
+    @Activate
+    void activate(ExecutorConfig config) {
+        if (config.virtualThreads()) {
+            this.executor = newVirtualThreadPerTaskExecutor();
+        }
+        if (this.executor == null) {
+            int threads = config.threads() > 0 ? config.threads() : 2 * Runtime.getRuntime().availableProcessors();
+            AtomicInteger threadCount = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "fipro-http-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            this.executor = Executors.newFixedThreadPool(threads, threadFactory);
+        }
+    }
+
+    @Deactivate
+    void deactivate() {
+        this.executor.shutdown();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        this.executor.execute(command);
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            // looked up reflectively as the bundle is compiled against Java 17
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
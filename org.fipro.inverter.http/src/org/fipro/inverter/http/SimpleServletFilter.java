@@ -2,19 +2,26 @@ package org.fipro.inverter.http;
 
 import java.io.IOException;
 
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.FilterConfig;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.ServiceScope;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardFilterAsyncSupported;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardFilterDispatcher;
 import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardFilterPattern;
 
 @Component(scope=ServiceScope.PROTOTYPE)
 @HttpWhiteboardFilterPattern("/invert")
+@HttpWhiteboardFilterAsyncSupported
+@HttpWhiteboardFilterDispatcher({ DispatcherType.REQUEST, DispatcherType.ASYNC })
 public class SimpleServletFilter implements Filter {
 
     @Override
@@ -24,10 +31,23 @@ public class SimpleServletFilter implements Filter {
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
-        response.setContentType("text/html");
-        response.getWriter().write("<b>Inverter Servlet</b><p>");
+        if (!"GET".equals(((HttpServletRequest) request).getMethod())) {
+            // only decorate the HTML result, streamed POST results stay plain
+            chain.doFilter(request, response);
+            return;
+        }
+        // with async processing the result is rendered in the ASYNC dispatch,
+        // so the header belongs to the initial request and the footer to the
+        // dispatch that did not start async processing again
+        if (request.getDispatcherType() == DispatcherType.REQUEST) {
+            response.setContentType("text/html");
+            response.getWriter().write("<b>Inverter Servlet</b><p>");
+        }
         chain.doFilter(request, response);
-        response.getWriter().write("</p><i>Powered by fipro</i>");
+        if (!request.isAsyncStarted()
+                && ((HttpServletResponse) response).getStatus() != HttpServletResponse.SC_NOT_MODIFIED) {
+            response.getWriter().write("</p><i>Powered by fipro</i>");
+        }
     }
 
     @Override
@@ -0,0 +1,322 @@
+package org.fipro.inverter.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import jakarta.servlet.Servlet;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ServiceScope;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardServletAsyncSupported;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardServletPattern;
+
+/**
+ * Serves the static files in the <i>resources</i> folder of this bundle via
+ * <i>/files</i>, e.g. <i>/files/eclipse_logo.png</i>.
+ * <p>
+ * Bundle entries are read only once, paths that do not exist or name a
+ * directory are answered with 404 and not remembered. Small files are kept in memory, larger
+ * ones are extracted to a temporary file and transferred via
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}. Responses
+ * carry a strong ETag and support conditional and range requests. If the
+ * client accepts gzip and a precompressed <i>.gz</i> variant exists, that
+ * variant is served instead.
+ */
+@Component(
+    service=Servlet.class,
+    scope=ServiceScope.PROTOTYPE)
+@HttpWhiteboardServletPattern("/files/*")
+@HttpWhiteboardServletAsyncSupported
+public class StaticResourceServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String PREFIX = "resources";
+
+    @interface StaticResourceConfig {
+        /**
+         * The maximum size in bytes of a file that is kept in memory.
+         */
+        int memoryMaxBytes() default 256 * 1024;
+    }
+
+    private static final class StaticFile {
+        final long length;
+        final long lastModified;
+        final String etag;
+        final byte[] content;
+        final Path file;
+
+        StaticFile(long length, long lastModified, String etag, byte[] content, Path file) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.etag = etag;
+            this.content = content;
+            this.file = file;
+        }
+    }
+
+    private final Map<String, StaticFile> files = new ConcurrentHashMap<>();
+    private int memoryMaxBytes;
+    private Path extractDirectory;
+
+    @Activate
+    void activate(StaticResourceConfig config) {
+        this.memoryMaxBytes = config.memoryMaxBytes();
+    }
+
+    @Override
+    public void destroy() {
+        if (this.extractDirectory != null) {
+            try (Stream<Path> paths = Files.walk(this.extractDirectory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            } catch (IOException e) {
+                // the temporary directory is cleaned up by the OS
+            }
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+
+        String name = req.getPathInfo();
+        if (name == null || name.contains("..") || name.endsWith("/")) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        StaticFile staticFile = null;
+        String encoding = null;
+        String acceptEncoding = req.getHeader("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            staticFile = lookup(name + ".gz");
+            encoding = (staticFile != null) ? "gzip" : null;
+        }
+        if (staticFile == null) {
+            staticFile = lookup(name);
+        }
+        if (staticFile == null) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        resp.setHeader("ETag", staticFile.etag);
+        resp.setHeader("Vary", "Accept-Encoding");
+        if (staticFile.lastModified > 0) {
+            resp.setDateHeader("Last-Modified", staticFile.lastModified);
+        }
+        if (matches(req.getHeader("If-None-Match"), staticFile.etag)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String mimeType = getServletContext().getMimeType(name);
+        resp.setContentType(mimeType != null ? mimeType : "application/octet-stream");
+        if (encoding != null) {
+            resp.setHeader("Content-Encoding", encoding);
+        } else {
+            resp.setHeader("Accept-Ranges", "bytes");
+        }
+
+        long start = 0;
+        long length = staticFile.length;
+        String range = req.getHeader("Range");
+        String ifRange = req.getHeader("If-Range");
+        if (range != null && encoding == null && (ifRange == null || ifRange.equals(staticFile.etag))) {
+            long[] byteRange = parseRange(range, staticFile.length);
+            if (byteRange == null) {
+                resp.setHeader("Content-Range", "bytes */" + staticFile.length);
+                resp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (byteRange.length == 2) {
+                start = byteRange[0];
+                length = byteRange[1] - byteRange[0] + 1;
+                resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                resp.setHeader("Content-Range", 
+                    "bytes " + byteRange[0] + "-" + byteRange[1] + "/" + staticFile.length);
+            }
+        }
+        resp.setContentLengthLong(length);
+
+        if ("HEAD".equals(req.getMethod())) {
+            return;
+        }
+        OutputStream out = resp.getOutputStream();
+        if (staticFile.content != null) {
+            out.write(staticFile.content, (int) start, (int) length);
+        } else {
+            try (FileChannel channel = FileChannel.open(staticFile.file, StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long position = start;
+                long end = start + length;
+                while (position < end) {
+                    position += channel.transferTo(position, end - position, target);
+                }
+            }
+        }
+    }
+
+    private StaticFile lookup(String name) throws IOException {
+        StaticFile staticFile = this.files.get(name);
+        if (staticFile == null) {
+            // bundle entries never change for a servlet instance, so this is
+            // only done once per file. Misses are not remembered, the map
+            // would otherwise grow with every random path that is requested.
+            staticFile = load(name);
+            if (staticFile != null) {
+                StaticFile previous = this.files.putIfAbsent(name, staticFile);
+                if (previous != null) {
+                    staticFile = previous;
+                }
+            }
+        }
+        return staticFile;
+    }
+
+    private StaticFile load(String name) throws IOException {
+        URL url = getClass().getClassLoader().getResource(PREFIX + name);
+        if (url == null || isDirectory(url)) {
+            return null;
+        }
+
+        URLConnection connection = url.openConnection();
+        long lastModified = connection.getLastModified();
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(connection.getInputStream(), digest)) {
+            long contentLength = connection.getContentLengthLong();
+            if (contentLength >= 0 && contentLength <= this.memoryMaxBytes) {
+                byte[] content = in.readAllBytes();
+                return new StaticFile(content.length, lastModified, etag(digest), content, null);
+            }
+
+            Path file = Files.createTempFile(extractDirectory(), "static", null);
+            long length = Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            return new StaticFile(length, lastModified, etag(digest), null, file);
+        }
+    }
+
+    /**
+     * Bundle entries of folders end with a slash, in an exploded bundle, e.g.
+     * when launched from the IDE, the folder is found in the file system.
+     */
+    private static boolean isDirectory(URL url) {
+        if (url.getPath().endsWith("/")) {
+            return true;
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return Files.isDirectory(Path.of(url.toURI()));
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private synchronized Path extractDirectory() throws IOException {
+        if (this.extractDirectory == null) {
+            this.extractDirectory = Files.createTempDirectory("fipro-static");
+        }
+        return this.extractDirectory;
+    }
+
+    /**
+     * @return <code>null</code> if the range is not satisfiable, an empty array
+     *         if the whole file should be served, or the first and the last
+     *         byte position of the requested range.
+     */
+    static long[] parseRange(String range, long length) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            // multiple ranges are answered with the whole file
+            return new long[0];
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            long first;
+            long last;
+            if (dash == 0) {
+                // suffix range, the last n bytes
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) {
+                    return null;
+                }
+                first = Math.max(0, length - suffix);
+                last = length - 1;
+            } else {
+                first = Long.parseLong(spec.substring(0, dash));
+                last = (dash == spec.length() - 1) 
+                    ? length - 1 
+                    : Long.parseLong(spec.substring(dash + 1));
+            }
+            if (first >= length) {
+                return null;
+            }
+            if (first > last) {
+                // syntactically invalid, ignore the header
+                return new long[0];
+            }
+            return new long[] { first, Math.min(last, length - 1) };
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is supported by every Java platform", e);
+        }
+    }
+
+    private static String etag(MessageDigest digest) {
+        // the first 128 bit of the content hash are unique enough
+        return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+    }
+}
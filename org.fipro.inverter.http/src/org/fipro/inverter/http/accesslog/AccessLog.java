@@ -0,0 +1,234 @@
+package org.fipro.inverter.http.accesslog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.log.Logger;
+import org.osgi.service.log.LoggerFactory;
+
+/**
+ * Writes the access log. Request threads only publish records into a lock-free
+ * {@link RingBuffer}, a single background thread formats them and writes them
+ * in batches to a file that is rotated by size. If the buffer is full, records
+ * are dropped and the number of dropped records is written to the log instead
+ * of blocking the request threads.
+ */
+@Component(
+    service = AccessLog.class,
+    configurationPid = "org.fipro.inverter.http.accesslog")
+public class AccessLog {
+
+    @interface AccessLogConfig {
+        /**
+         * The log file, rotated files get the suffix .1, .2, ...
+         */
+        String file() default "logs/access.log";
+
+        /**
+         * The log format, see {@link AccessLogFormat} for the supported codes.
+         */
+        String format() default AccessLogFormat.COMMON_WITH_DURATION;
+
+        /**
+         * The maximum time in milliseconds until a record is written.
+         */
+        long flushIntervalMillis() default 1000;
+
+        /**
+         * The number of records that can be buffered.
+         */
+        int bufferSize() default 16384;
+
+        /**
+         * The file size in bytes that triggers a rotation.
+         */
+        long maxFileBytes() default 10 * 1024 * 1024;
+
+        /**
+         * The number of rotated files that are kept.
+         */
+        int maxFiles() default 5;
+    }
+
+    private static final int BATCH_CHARS = 64 * 1024;
+
+    @Reference(service = LoggerFactory.class)
+    private Logger logger;
+
+    private RingBuffer<AccessLogRecord> buffer;
+    private int wakeUpMask;
+    private AccessLogFormat format;
+    private final LongAdder dropped = new LongAdder();
+
+    private Path file;
+    private long maxFileBytes;
+    private int maxFiles;
+    private long flushIntervalNanos;
+    private FileChannel channel;
+    private long fileSize;
+
+    // only accessed by the writer thread
+    private int batchRecords;
+    private boolean failing;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    @Activate
+    void activate(AccessLogConfig config) throws IOException {
+        this.format = new AccessLogFormat(config.format());
+        this.buffer = new RingBuffer<>(config.bufferSize());
+        // wake up the writer whenever another quarter of the buffer is used
+        this.wakeUpMask = (this.buffer.capacity() >> 2) - 1;
+        this.file = Path.of(config.file()).toAbsolutePath();
+        this.maxFileBytes = config.maxFileBytes();
+        this.maxFiles = config.maxFiles();
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.flushIntervalMillis());
+        openFile();
+
+        this.running = true;
+        this.writer = new Thread(this::writeLoop, "fipro-access-log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Deactivate
+    void deactivate() throws InterruptedException {
+        this.running = false;
+        LockSupport.unpark(this.writer);
+        this.writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Publishes a record without blocking.
+     */
+    void log(AccessLogRecord record) {
+        long pos = this.buffer.offer(record);
+        if (pos < 0) {
+            this.dropped.increment();
+        } else if ((pos & this.wakeUpMask) == this.wakeUpMask) {
+            LockSupport.unpark(this.writer);
+        }
+    }
+
+    private void writeLoop() {
+        StringBuilder batch = new StringBuilder(BATCH_CHARS + 1024);
+        while (this.running) {
+            LockSupport.parkNanos(this.flushIntervalNanos);
+            drainOrRecover(batch);
+        }
+        drainOrRecover(batch);
+        closeFile();
+    }
+
+    /**
+     * Drains the buffer. A failed write drops the current batch and closes the
+     * file, it is reopened with the next batch. That way a temporary problem
+     * like a full disk does not stop the access log until a restart.
+     */
+    private void drainOrRecover(StringBuilder batch) {
+        try {
+            if (this.channel == null) {
+                openFile();
+            }
+            drain(batch);
+            if (this.failing) {
+                this.failing = false;
+                this.logger.info("Writing the access log {} again", this.file);
+            }
+        } catch (IOException | RuntimeException e) {
+            this.dropped.add(this.batchRecords);
+            this.batchRecords = 0;
+            batch.setLength(0);
+            closeFile();
+            if (!this.failing) {
+                // only report the first failure, not every retry
+                this.failing = true;
+                this.logger.error("Writing the access log {} failed, retrying with the next records", this.file, e);
+            }
+        }
+    }
+
+    private void drain(StringBuilder batch) throws IOException {
+        AccessLogRecord record;
+        while ((record = this.buffer.poll()) != null) {
+            this.format.format(batch, record);
+            this.batchRecords++;
+            if (batch.length() >= BATCH_CHARS) {
+                write(batch);
+            }
+        }
+        long droppedRecords = this.dropped.sumThenReset();
+        if (droppedRecords > 0) {
+            batch.append("# dropped ").append(droppedRecords)
+                .append(" records, the access log buffer was full or the log could not be written\n");
+        }
+        if (batch.length() > 0) {
+            write(batch);
+        }
+    }
+
+    private void write(StringBuilder batch) throws IOException {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(batch));
+        batch.setLength(0);
+        if (this.fileSize > 0 && this.fileSize + bytes.remaining() > this.maxFileBytes) {
+            rotate();
+        }
+        while (bytes.hasRemaining()) {
+            this.fileSize += this.channel.write(bytes);
+        }
+        this.batchRecords = 0;
+    }
+
+    private void rotate() throws IOException {
+        closeFile();
+        for (int i = this.maxFiles - 1; i >= 1; i--) {
+            Path source = rotated(i);
+            if (Files.exists(source)) {
+                Files.move(source, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (this.maxFiles > 0) {
+            Files.move(this.file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(this.file);
+        }
+        openFile();
+    }
+
+    private Path rotated(int index) {
+        return this.file.resolveSibling(this.file.getFileName() + "." + index);
+    }
+
+    private void openFile() throws IOException {
+        Files.createDirectories(this.file.getParent());
+        this.channel = FileChannel.open(this.file,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.fileSize = this.channel.size();
+    }
+
+    private void closeFile() {
+        if (this.channel != null) {
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                // nothing left to write
+            }
+            this.channel = null;
+        }
+    }
+}
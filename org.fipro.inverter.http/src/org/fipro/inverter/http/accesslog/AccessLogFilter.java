@@ -0,0 +1,106 @@
+package org.fipro.inverter.http.accesslog;
+
+import java.io.IOException;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ServiceScope;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardContextSelect;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardFilterAsyncSupported;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardFilterPattern;
+
+/**
+ * Passes every request in all servlet contexts to the {@link AccessLog}.
+ * Requests that are processed asynchronously are logged when they complete.
+ */
+@Component(scope=ServiceScope.PROTOTYPE)
+@HttpWhiteboardFilterPattern("/*")
+@HttpWhiteboardContextSelect("(osgi.http.whiteboard.context.name=*)")
+@HttpWhiteboardFilterAsyncSupported
+public class AccessLogFilter implements Filter {
+
+    @Reference
+    private AccessLog accessLog;
+
+    @Override
+    public void init(FilterConfig filterConfig)
+            throws ServletException { }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        long timestamp = System.currentTimeMillis();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(timestamp, start));
+            } else {
+                log(request, response, timestamp, start, failed);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() { }
+
+    private void log(ServletRequest request, ServletResponse response, long timestamp, long start, boolean failed) {
+        long duration = System.nanoTime() - start;
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        accessLog.log(new AccessLogRecord(
+            timestamp,
+            httpRequest.getRemoteAddr(),
+            httpRequest.getMethod(),
+            httpRequest.getRequestURI(),
+            httpRequest.getQueryString(),
+            httpRequest.getProtocol(),
+            // the container turns an exception into a 500 after the filter
+            failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : httpResponse.getStatus(),
+            httpResponse.getHeader("Content-Length"),
+            duration));
+    }
+
+    private class CompletionListener implements AsyncListener {
+
+        private final long timestamp;
+        private final long start;
+
+        CompletionListener(long timestamp, long start) {
+            this.timestamp = timestamp;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            log(event.getSuppliedRequest(), event.getSuppliedResponse(), this.timestamp, this.start, false);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) { }
+
+        @Override
+        public void onError(AsyncEvent event) { }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // keep listening if the request is processed asynchronously again
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
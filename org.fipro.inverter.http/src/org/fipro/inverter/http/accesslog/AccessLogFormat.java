@@ -0,0 +1,122 @@
+package org.fipro.inverter.http.accesslog;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A subset of the Apache HTTP server log format:
+ * <ul>
+ * <li><code>%h</code> remote address</li>
+ * <li><code>%t</code> time in common log format</li>
+ * <li><code>%r</code> request line</li>
+ * <li><code>%m</code> method</li>
+ * <li><code>%U</code> URI path</li>
+ * <li><code>%q</code> query string, including the <code>?</code></li>
+ * <li><code>%H</code> protocol</li>
+ * <li><code>%s</code> status</li>
+ * <li><code>%b</code> response size from the Content-Length header, or
+ * <code>-</code></li>
+ * <li><code>%D</code> duration in microseconds</li>
+ * <li><code>%T</code> duration in milliseconds</li>
+ * <li><code>%%</code> a percent sign</li>
+ * </ul>
+ * The pattern is parsed once, formatting only appends to a reused
+ * {@link StringBuilder}.
+ */
+final class AccessLogFormat {
+
+    static final String COMMON_WITH_DURATION = "%h - - %t \"%r\" %s %b %D";
+
+    private static final DateTimeFormatter TIME_FORMAT =
+        DateTimeFormatter.ofPattern("'['dd/MMM/yyyy:HH:mm:ss Z']'", Locale.ENGLISH)
+            .withZone(ZoneId.systemDefault());
+
+    private interface Segment {
+        void append(StringBuilder builder, AccessLogRecord record);
+    }
+
+    private final List<Segment> segments = new ArrayList<>();
+
+    // the time only changes once per second, so it is cached
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedTime;
+
+    AccessLogFormat(String pattern) {
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c != '%' || i + 1 == pattern.length()) {
+                literal.append(c);
+                continue;
+            }
+            char code = pattern.charAt(++i);
+            if (code == '%') {
+                literal.append('%');
+                continue;
+            }
+            Segment segment = segment(code);
+            if (segment == null) {
+                throw new IllegalArgumentException("Unsupported format code %" + code + " in " + pattern);
+            }
+            addLiteral(literal);
+            this.segments.add(segment);
+        }
+        addLiteral(literal);
+    }
+
+    void format(StringBuilder builder, AccessLogRecord record) {
+        for (Segment segment : this.segments) {
+            segment.append(builder, record);
+        }
+        builder.append('\n');
+    }
+
+    private void addLiteral(StringBuilder literal) {
+        if (literal.length() > 0) {
+            String text = literal.toString();
+            this.segments.add((b, r) -> b.append(text));
+            literal.setLength(0);
+        }
+    }
+
+    private Segment segment(char code) {
+        switch (code) {
+            case 'h': return (b, r) -> b.append(r.remoteAddr);
+            case 't': return (b, r) -> b.append(time(r.timestamp));
+            case 'r': return (b, r) -> {
+                b.append(r.method).append(' ').append(r.uri);
+                if (r.query != null) {
+                    b.append('?').append(r.query);
+                }
+                b.append(' ').append(r.protocol);
+            };
+            case 'm': return (b, r) -> b.append(r.method);
+            case 'U': return (b, r) -> b.append(r.uri);
+            case 'q': return (b, r) -> {
+                if (r.query != null) {
+                    b.append('?').append(r.query);
+                }
+            };
+            case 'H': return (b, r) -> b.append(r.protocol);
+            case 's': return (b, r) -> b.append(r.status);
+            case 'b': return (b, r) -> b.append(r.contentLength != null ? r.contentLength : "-");
+            case 'D': return (b, r) -> b.append(TimeUnit.NANOSECONDS.toMicros(r.durationNanos));
+            case 'T': return (b, r) -> b.append(TimeUnit.NANOSECONDS.toMillis(r.durationNanos));
+            default: return null;
+        }
+    }
+
+    private String time(long timestamp) {
+        long second = timestamp / 1000;
+        if (second != this.cachedSecond) {
+            this.cachedSecond = second;
+            this.cachedTime = TIME_FORMAT.format(Instant.ofEpochSecond(second));
+        }
+        return this.cachedTime;
+    }
+}
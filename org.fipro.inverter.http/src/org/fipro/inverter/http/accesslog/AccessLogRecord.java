@@ -0,0 +1,31 @@
+package org.fipro.inverter.http.accesslog;
+
+/**
+ * The data of one request, captured on the request thread. Formatting is done
+ * by the writer thread of the {@link AccessLog}.
+ */
+final class AccessLogRecord {
+
+    final long timestamp;
+    final String remoteAddr;
+    final String method;
+    final String uri;
+    final String query;
+    final String protocol;
+    final int status;
+    final String contentLength;
+    final long durationNanos;
+
+    AccessLogRecord(long timestamp, String remoteAddr, String method, String uri, String query,
+            String protocol, int status, String contentLength, long durationNanos) {
+        this.timestamp = timestamp;
+        this.remoteAddr = remoteAddr;
+        this.method = method;
+        this.uri = uri;
+        this.query = query;
+        this.protocol = protocol;
+        this.status = status;
+        this.contentLength = contentLength;
+        this.durationNanos = durationNanos;
+    }
+}
@@ -0,0 +1,80 @@
+package org.fipro.inverter.http.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer for many producers and a single consumer.
+ * Producers claim a slot with a CAS on the tail and publish the element via
+ * the sequence of the slot. If the buffer is full, {@link #offer(Object)}
+ * fails immediately instead of blocking the producer.
+ */
+final class RingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    // the sequence of a slot tells which position it is ready for:
+    // pos for writing, pos + 1 for reading
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // only accessed by the consumer
+    private long head;
+
+    /**
+     * @param capacity
+     *            The capacity, rounded up to the next power of two.
+     */
+    RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return The position the element was published at, or -1 if the buffer
+     *         is full.
+     */
+    long offer(E element) {
+        while (true) {
+            long pos = this.tail.get();
+            int index = (int) (pos & this.mask);
+            long diff = this.sequences.get(index) - pos;
+            if (diff == 0) {
+                if (this.tail.compareAndSet(pos, pos + 1)) {
+                    this.elements.lazySet(index, element);
+                    this.sequences.set(index, pos + 1);
+                    return pos;
+                }
+            } else if (diff < 0) {
+                return -1;
+            }
+            // another producer claimed the slot, retry with the new tail
+        }
+    }
+
+    /**
+     * Must only be called by the single consumer.
+     * 
+     * @return The next element, or <code>null</code> if the buffer is empty.
+     */
+    E poll() {
+        int index = (int) (this.head & this.mask);
+        if (this.sequences.get(index) != this.head + 1) {
+            return null;
+        }
+        E element = this.elements.get(index);
+        this.elements.lazySet(index, null);
+        this.sequences.set(index, this.head + this.mask + 1);
+        this.head++;
+        return element;
+    }
+
+    int capacity() {
+        return this.mask + 1;
+    }
+}
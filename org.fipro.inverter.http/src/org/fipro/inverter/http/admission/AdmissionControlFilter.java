@@ -0,0 +1,178 @@
+package org.fipro.inverter.http.admission;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardFilterAsyncSupported;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardFilterPattern;
+
+/**
+ * Rejects requests early instead of letting them queue up under overload.
+ * <ul>
+ * <li>Every client, identified by its remote address, gets a token bucket.
+ * Requests without a token are answered with <code>429 Too Many
+ * Requests</code>.</li>
+ * <li>The number of requests processed at the same time is limited globally,
+ * requests over the limit are answered with <code>503 Service
+ * Unavailable</code>. The limit adapts to the observed latency, see
+ * {@link ConcurrencyLimit}.</li>
+ * </ul>
+ * Both answers carry a <code>Retry-After</code> header. The limits can be
+ * changed at runtime via ConfigurationAdmin.
+ */
+@Component(configurationPid = "org.fipro.inverter.http.admission")
+@HttpWhiteboardFilterPattern({ "/invert", "/invert/*" })
+@HttpWhiteboardFilterAsyncSupported
+public class AdmissionControlFilter implements Filter {
+
+    @interface AdmissionConfig {
+        /**
+         * The sustained number of requests per second of a single client.
+         */
+        double requestsPerSecond() default 50;
+
+        /**
+         * The number of requests a single client can send at once.
+         */
+        int burst() default 100;
+
+        /**
+         * The maximum number of client buckets, the least recently seen
+         * client is evicted for a new one.
+         */
+        int maxClients() default 10000;
+
+        /**
+         * Whether the global concurrency limit adapts to the latency. If
+         * disabled, maxConcurrency is used as a fixed limit.
+         */
+        boolean adaptive() default true;
+
+        int initialConcurrency() default 64;
+
+        int minConcurrency() default 8;
+
+        int maxConcurrency() default 512;
+
+        /**
+         * The latency in milliseconds above which the adaptive limit is
+         * decreased.
+         */
+        long targetLatencyMillis() default 250;
+    }
+
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
+    private final ClientBuckets buckets = new ClientBuckets();
+
+    private volatile double tokensPerNano;
+    private volatile double burst;
+    private volatile ConcurrencyLimit concurrencyLimit;
+
+    @Activate
+    @Modified
+    void configure(AdmissionConfig config) {
+        this.tokensPerNano = config.requestsPerSecond() / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, config.burst());
+        this.buckets.setMaxClients(config.maxClients());
+        // requests admitted by the previous limit release on that instance
+        this.concurrencyLimit = new ConcurrencyLimit(
+            config.adaptive(),
+            config.initialConcurrency(),
+            config.minConcurrency(),
+            config.maxConcurrency(),
+            TimeUnit.MILLISECONDS.toNanos(config.targetLatencyMillis()));
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig)
+            throws ServletException { }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        long now = System.nanoTime();
+        long wait = acquireToken(request.getRemoteAddr(), now);
+        if (wait > 0) {
+            reject((HttpServletResponse) response, SC_TOO_MANY_REQUESTS, wait);
+            return;
+        }
+
+        ConcurrencyLimit limit = this.concurrencyLimit;
+        if (!limit.tryAcquire()) {
+            reject((HttpServletResponse) response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1));
+            return;
+        }
+
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseListener(limit, now));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                long end = System.nanoTime();
+                limit.release(end - now, end);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() { }
+
+    private long acquireToken(String client, long now) {
+        double tokensPerNano = this.tokensPerNano;
+        double burst = this.burst;
+        return this.buckets.get(client, burst, now).tryAcquire(tokensPerNano, burst, now);
+    }
+
+    private static void reject(HttpServletResponse response, int status, long retryAfterNanos) throws IOException {
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setHeader("Retry-After", Long.toString(seconds));
+        response.sendError(status);
+    }
+
+    private static class ReleaseListener implements AsyncListener {
+
+        private final ConcurrencyLimit limit;
+        private final long start;
+
+        ReleaseListener(ConcurrencyLimit limit, long start) {
+            this.limit = limit;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            long now = System.nanoTime();
+            this.limit.release(now - this.start, now);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) { }
+
+        @Override
+        public void onError(AsyncEvent event) { }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
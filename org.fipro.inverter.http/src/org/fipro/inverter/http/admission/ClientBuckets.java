@@ -0,0 +1,68 @@
+package org.fipro.inverter.http.admission;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * The token buckets of the clients, bounded by the number of clients. The
+ * buckets are split over stripes that are each an access ordered LRU with its
+ * own lock, so a lookup costs the same for a known and a new client and
+ * requests of different clients rarely wait for each other. A new client in
+ * a full stripe evicts the client of that stripe that was seen least recently.
+ * That client starts with a full bucket again, which only matters if it comes
+ * back within the time it needs to refill its bucket anyway.
+ */
+final class ClientBuckets {
+
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    ClientBuckets() {
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    void setMaxClients(int maxClients) {
+        int perStripe = Math.max(1, (maxClients + STRIPES - 1) / STRIPES);
+        for (Stripe stripe : this.stripes) {
+            stripe.maxEntries = perStripe;
+        }
+    }
+
+    TokenBucket get(String client, double burst, long now) {
+        return this.stripes[(client.hashCode() & 0x7fffffff) % STRIPES].get(client, burst, now);
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : this.stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private static final class Stripe {
+        private final LinkedHashMap<String, TokenBucket> buckets = new LinkedHashMap<>(16, 0.75f, true);
+        volatile int maxEntries = Integer.MAX_VALUE;
+
+        synchronized TokenBucket get(String client, double burst, long now) {
+            TokenBucket bucket = this.buckets.get(client);
+            if (bucket == null) {
+                bucket = new TokenBucket(burst, now);
+                this.buckets.put(client, bucket);
+                Iterator<TokenBucket> eldest = this.buckets.values().iterator();
+                while (this.buckets.size() > this.maxEntries) {
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+            return bucket;
+        }
+
+        synchronized int size() {
+            return this.buckets.size();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.fipro.inverter.http.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Global limit of concurrently processed requests. In adaptive mode the limit
+ * follows an AIMD scheme: it grows by one per limit-worth of fast requests
+ * while the limit is actually used, and shrinks by 10% if a request takes
+ * longer than the target latency. That keeps the queues inside Jetty short,
+ * so the admitted requests stay fast when the server is overloaded.
+ */
+final class ConcurrencyLimit {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final boolean adaptive;
+    private final int min;
+    private final int max;
+    private final long targetLatencyNanos;
+
+    // only changed while holding the monitor, read without it
+    private volatile int limit;
+    private double exactLimit;
+    private long lastDecrease;
+
+    ConcurrencyLimit(boolean adaptive, int initial, int min, int max, long targetLatencyNanos) {
+        this.adaptive = adaptive;
+        this.min = Math.max(1, min);
+        this.max = Math.max(this.min, max);
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.exactLimit = adaptive ? Math.max(this.min, Math.min(this.max, initial)) : this.max;
+        this.limit = (int) this.exactLimit;
+    }
+
+    boolean tryAcquire() {
+        if (this.inFlight.incrementAndGet() > this.limit) {
+            this.inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    void release(long latencyNanos, long now) {
+        int current = this.inFlight.getAndDecrement();
+        if (!this.adaptive) {
+            return;
+        }
+        if (latencyNanos > this.targetLatencyNanos) {
+            synchronized (this) {
+                // decrease at most once per target latency, a single slow
+                // phase should not collapse the limit
+                if (now - this.lastDecrease > this.targetLatencyNanos) {
+                    this.lastDecrease = now;
+                    this.exactLimit = Math.max(this.min, this.exactLimit * 0.9);
+                    this.limit = (int) this.exactLimit;
+                }
+            }
+        } else if (current * 2 >= this.limit && this.limit < this.max) {
+            synchronized (this) {
+                this.exactLimit = Math.min(this.max, this.exactLimit + 1 / this.exactLimit);
+                this.limit = (int) this.exactLimit;
+            }
+        }
+    }
+
+    int getLimit() {
+        return this.limit;
+    }
+
+    int getInFlight() {
+        return this.inFlight.get();
+    }
+}
@@ -0,0 +1,30 @@
+package org.fipro.inverter.http.admission;
+
+/**
+ * Token bucket of a single client. The bucket is refilled lazily on access,
+ * so idle clients cost nothing but their entry in {@link ClientBuckets}.
+ */
+final class TokenBucket {
+
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(double burst, long now) {
+        this.tokens = burst;
+        this.lastRefill = now;
+    }
+
+    /**
+     * @return 0 if a token was taken, otherwise the nanoseconds until the
+     *         next token is available.
+     */
+    synchronized long tryAcquire(double tokensPerNano, double burst, long now) {
+        this.tokens = Math.min(burst, this.tokens + (now - this.lastRefill) * tokensPerNano);
+        this.lastRefill = now;
+        if (this.tokens >= 1) {
+            this.tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - this.tokens) / tokensPerNano);
+    }
+}
@@ -0,0 +1,252 @@
+package org.fipro.inverter.http.compression;
+
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+/**
+ * Buffers the first bytes of a response up to a threshold. If the response
+ * stays below the threshold it is written uncompressed, otherwise the
+ * compression is started and everything is streamed through a pooled
+ * {@link Deflater}.
+ */
+final class CompressingOutputStream extends ServletOutputStream {
+
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final CompressingResponse response;
+    private final DeflaterPool pool;
+    private final boolean gzip;
+
+    private final int threshold;
+    private byte[] buffer;
+    private int count;
+
+    private ServletOutputStream out;
+    private boolean passThrough;
+    private Deflater deflater;
+    private DeflaterOutputStream deflating;
+    private CRC32 crc;
+    private boolean finished;
+    private boolean discarded;
+
+    // set while flushing a writer without the intention to decide on compression
+    boolean deferDecision;
+
+    CompressingOutputStream(CompressingResponse response, DeflaterPool pool, boolean gzip, int threshold) {
+        this.response = response;
+        this.pool = pool;
+        this.gzip = gzip;
+        this.threshold = threshold;
+        this.buffer = new byte[threshold];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (this.finished) {
+            throw new IOException("Stream is already closed");
+        }
+        if (this.discarded) {
+            return;
+        }
+        if (this.deflating != null) {
+            if (this.gzip) {
+                this.crc.update(b, off, len);
+            }
+            this.deflating.write(b, off, len);
+        } else if (this.passThrough) {
+            out().write(b, off, len);
+        } else if (this.count + len <= this.buffer.length) {
+            System.arraycopy(b, off, this.buffer, this.count, len);
+            this.count += len;
+        } else {
+            decide();
+            write(b, off, len);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (this.discarded) {
+            return;
+        }
+        if (isUndecided()) {
+            if (this.deferDecision) {
+                return;
+            }
+            decide();
+        }
+        if (this.deflating != null) {
+            // syncFlush sends everything compressed so far
+            this.deflating.flush();
+        } else {
+            out().flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        if (!this.discarded) {
+            out().close();
+        }
+    }
+
+    /**
+     * Writes the remaining data, without closing the underlying stream.
+     */
+    void finish() throws IOException {
+        if (this.finished) {
+            return;
+        }
+        if (this.discarded) {
+            this.finished = true;
+            releaseDeflater();
+            return;
+        }
+        if (isUndecided()) {
+            // the whole response is below the threshold
+            this.response.applyContentLength(this.count);
+            startPassThrough();
+        }
+        this.finished = true;
+        if (this.deflating != null) {
+            this.deflating.finish();
+            if (this.gzip) {
+                writeTrailer(this.crc.getValue(), this.deflater.getBytesRead());
+            }
+            releaseDeflater();
+        }
+    }
+
+    /**
+     * Writes what is buffered so far uncompressed and passes all further data.
+     */
+    void startPassThrough() throws IOException {
+        this.response.applyContentLength(-1);
+        this.passThrough = true;
+        out().write(this.buffer, 0, this.count);
+        this.buffer = null;
+    }
+
+    boolean isUndecided() {
+        return !this.passThrough && this.deflating == null && !this.finished;
+    }
+
+    boolean hasBufferedData() {
+        return this.count > 0;
+    }
+
+    /**
+     * Drops the buffered data and ignores everything written afterwards, as
+     * the container sends an error page instead.
+     */
+    void discard() {
+        if (isUndecided()) {
+            this.count = 0;
+            this.passThrough = true;
+            this.buffer = null;
+        }
+        this.discarded = true;
+    }
+
+    void resetBuffer() {
+        if (isUndecided()) {
+            this.count = 0;
+        }
+    }
+
+    /**
+     * Starts over with an undecided stream, as long as nothing was committed.
+     * Used if the response is reset, which also clears the headers.
+     */
+    void reset() {
+        if (isUndecided()) {
+            this.count = 0;
+        } else if (!this.response.isCommitted()) {
+            releaseDeflater();
+            this.deflating = null;
+            this.crc = null;
+            this.passThrough = false;
+            this.finished = false;
+            this.discarded = false;
+            this.buffer = new byte[this.threshold];
+            this.count = 0;
+        }
+    }
+
+    /**
+     * Returns a borrowed {@link Deflater} to the pool if the response was
+     * never finished, e.g. because of an error.
+     */
+    void releaseDeflater() {
+        if (this.deflater != null) {
+            this.pool.release(this.deflater, this.gzip);
+            this.deflater = null;
+        }
+    }
+
+    private void decide() throws IOException {
+        if (this.response.shouldCompress()) {
+            startCompression();
+        } else {
+            startPassThrough();
+        }
+    }
+
+    private void startCompression() throws IOException {
+        this.response.applyCompressionHeaders();
+        this.deflater = this.pool.borrow(this.gzip);
+        this.deflating = new DeflaterOutputStream(out(), this.deflater, 8192, true);
+        if (this.gzip) {
+            out().write(GZIP_HEADER);
+            this.crc = new CRC32();
+            this.crc.update(this.buffer, 0, this.count);
+        }
+        this.deflating.write(this.buffer, 0, this.count);
+        this.buffer = null;
+    }
+
+    private void writeTrailer(long crc, long size) throws IOException {
+        byte[] trailer = new byte[8];
+        for (int i = 0; i < 4; i++) {
+            trailer[i] = (byte) (crc >>> (8 * i));
+            trailer[i + 4] = (byte) (size >>> (8 * i));
+        }
+        out().write(trailer);
+    }
+
+    private ServletOutputStream out() throws IOException {
+        if (this.out == null) {
+            this.out = this.response.getResponse().getOutputStream();
+        }
+        return this.out;
+    }
+
+    @Override
+    public boolean isReady() {
+        try {
+            return out().isReady();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+        try {
+            out().setWriteListener(writeListener);
+        } catch (IOException e) {
+            writeListener.onError(e);
+        }
+    }
+}
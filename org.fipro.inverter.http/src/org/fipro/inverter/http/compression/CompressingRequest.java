@@ -0,0 +1,126 @@
+package org.fipro.inverter.http.compression;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * Request wrapper that hands out an {@link AsyncContext} which finishes the
+ * compressed body in {@link AsyncContext#complete()}. That way the stream is
+ * finished by the thread that wrote the response, not by the filter or the
+ * container.
+ */
+final class CompressingRequest extends HttpServletRequestWrapper {
+
+    private final CompressingResponse response;
+    private AsyncContext asyncContext;
+
+    CompressingRequest(HttpServletRequest request, CompressingResponse response) {
+        super(request);
+        this.response = response;
+    }
+
+    @Override
+    public AsyncContext startAsync() throws IllegalStateException {
+        this.asyncContext = new CompletingAsyncContext(super.startAsync(), this.response);
+        return this.asyncContext;
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse)
+            throws IllegalStateException {
+        this.asyncContext = new CompletingAsyncContext(
+            super.startAsync(servletRequest, servletResponse), this.response);
+        return this.asyncContext;
+    }
+
+    @Override
+    public AsyncContext getAsyncContext() {
+        // a new wrapper is created for every dispatch, so the context is current
+        return (this.asyncContext != null) ? this.asyncContext : super.getAsyncContext();
+    }
+
+    private static final class CompletingAsyncContext implements AsyncContext {
+
+        private final AsyncContext delegate;
+        private final CompressingResponse response;
+
+        CompletingAsyncContext(AsyncContext delegate, CompressingResponse response) {
+            this.delegate = delegate;
+            this.response = response;
+        }
+
+        @Override
+        public void complete() {
+            // called by the thread that wrote the response, after it is done
+            this.response.finishQuietly();
+            this.delegate.complete();
+        }
+
+        @Override
+        public ServletRequest getRequest() {
+            return this.delegate.getRequest();
+        }
+
+        @Override
+        public ServletResponse getResponse() {
+            return this.delegate.getResponse();
+        }
+
+        @Override
+        public boolean hasOriginalRequestAndResponse() {
+            return this.delegate.hasOriginalRequestAndResponse();
+        }
+
+        @Override
+        public void dispatch() {
+            this.delegate.dispatch();
+        }
+
+        @Override
+        public void dispatch(String path) {
+            this.delegate.dispatch(path);
+        }
+
+        @Override
+        public void dispatch(ServletContext context, String path) {
+            this.delegate.dispatch(context, path);
+        }
+
+        @Override
+        public void start(Runnable run) {
+            this.delegate.start(run);
+        }
+
+        @Override
+        public void addListener(AsyncListener listener) {
+            this.delegate.addListener(listener);
+        }
+
+        @Override
+        public void addListener(AsyncListener listener, ServletRequest servletRequest,
+                ServletResponse servletResponse) {
+            this.delegate.addListener(listener, servletRequest, servletResponse);
+        }
+
+        @Override
+        public <T extends AsyncListener> T createListener(Class<T> clazz) throws ServletException {
+            return this.delegate.createListener(clazz);
+        }
+
+        @Override
+        public void setTimeout(long timeout) {
+            this.delegate.setTimeout(timeout);
+        }
+
+        @Override
+        public long getTimeout() {
+            return this.delegate.getTimeout();
+        }
+    }
+}
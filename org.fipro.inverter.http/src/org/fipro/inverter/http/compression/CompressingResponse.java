@@ -0,0 +1,210 @@
+package org.fipro.inverter.http.compression;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.Deflater;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Response wrapper that routes the body through a
+ * {@link CompressingOutputStream}. The content length set by the servlet is
+ * held back until it is known whether the body is compressed.
+ */
+final class CompressingResponse extends HttpServletResponseWrapper {
+
+    private final String encoding;
+    private final CompressingOutputStream stream;
+    private PrintWriter writer;
+    private boolean streamUsed;
+    private long contentLength = -1;
+
+    CompressingResponse(HttpServletResponse response, String encoding, DeflaterPool pool, int threshold) {
+        super(response);
+        this.encoding = encoding;
+        this.stream = new CompressingOutputStream(this, pool, "gzip".equals(encoding), threshold);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (this.writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        this.streamUsed = true;
+        return this.stream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (this.writer == null) {
+            if (this.streamUsed) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            this.writer = new PrintWriter(new OutputStreamWriter(this.stream, getCharacterEncoding()));
+        }
+        return this.writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (this.stream.isUndecided()) {
+            this.contentLength = len;
+        } else if (!isCompressing()) {
+            super.setContentLengthLong(len);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (this.writer != null) {
+            this.writer.flush();
+        } else {
+            this.stream.flush();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        // the container renders the error, nothing buffered so far is sent
+        this.stream.discard();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        this.stream.discard();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void resetBuffer() {
+        // move characters pending in the writer to the stream, so they are dropped too
+        flushWriter();
+        this.stream.resetBuffer();
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        flushWriter();
+        this.stream.reset();
+        this.contentLength = -1;
+        super.reset();
+    }
+
+    boolean shouldCompress() {
+        int status = getStatus();
+        if (status == SC_NO_CONTENT || status == SC_PARTIAL_CONTENT || status == SC_NOT_MODIFIED) {
+            return false;
+        }
+        if (containsHeader("Content-Encoding") || containsHeader("Content-Range")) {
+            return false;
+        }
+        String contentType = getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        contentType = contentType.toLowerCase();
+        return contentType.startsWith("text/")
+            || contentType.startsWith("application/json")
+            || contentType.startsWith("application/javascript")
+            || contentType.startsWith("application/xml")
+            || contentType.contains("+json")
+            || contentType.contains("+xml");
+    }
+
+    void applyCompressionHeaders() {
+        super.setHeader("Content-Encoding", this.encoding);
+        super.addHeader("Vary", "Accept-Encoding");
+    }
+
+    /**
+     * Sets the content length that was held back for an uncompressed body.
+     * 
+     * @param bufferedLength
+     *            The length of the whole body if it is known, -1 otherwise.
+     */
+    void applyContentLength(long bufferedLength) {
+        long length = (this.contentLength >= 0) ? this.contentLength : bufferedLength;
+        int status = getStatus();
+        // these never have a body, a length would describe the representation
+        if (length >= 0 && status != SC_NO_CONTENT && status != SC_NOT_MODIFIED) {
+            super.setContentLengthLong(length);
+        }
+    }
+
+    /**
+     * Writes the remaining data. Called by the thread that processed the
+     * request last, either at the end of a synchronous dispatch or from
+     * <code>AsyncContext.complete()</code>.
+     */
+    void finish() throws IOException {
+        flushWriter();
+        this.stream.finish();
+    }
+
+    /**
+     * {@link #finish()} for callers that can not report an error, the client
+     * is gone in that case anyway.
+     */
+    void finishQuietly() {
+        try {
+            finish();
+        } catch (IOException | IllegalStateException e) {
+            // nothing left to do
+        }
+    }
+
+    /**
+     * Returns the borrowed {@link Deflater} after a failed synchronous dispatch.
+     */
+    void release() {
+        this.stream.releaseDeflater();
+    }
+
+    /**
+     * Moves the characters buffered in the writer to the stream, without
+     * deciding whether the body is compressed.
+     */
+    private void flushWriter() {
+        if (this.writer != null) {
+            this.stream.deferDecision = true;
+            try {
+                this.writer.flush();
+            } finally {
+                this.stream.deferDecision = false;
+            }
+        }
+    }
+
+    private boolean isCompressing() {
+        return !this.stream.isUndecided() && containsHeader("Content-Encoding");
+    }
+}
@@ -0,0 +1,152 @@
+package org.fipro.inverter.http.compression;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ServiceScope;
+import org.osgi.service.component.propertytypes.ServiceRanking;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardContextSelect;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardFilterAsyncSupported;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardFilterDispatcher;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardFilterPattern;
+
+/**
+ * Compresses textual responses with gzip or deflate, as negotiated via the
+ * <code>Accept-Encoding</code> header. Responses below the configured threshold
+ * are sent uncompressed. Compression is streamed, the body is never buffered
+ * as a whole.
+ * <p>
+ * The stream is only accessed by the thread that currently processes the
+ * request. If the request is processed asynchronously, the stream is finished
+ * when it is closed or when <code>AsyncContext.complete()</code> is called. The
+ * wrapped response is passed on to the ASYNC dispatch, so a body that is
+ * written partly in the initial request and partly in the dispatch is
+ * compressed as a whole.
+ * <p>
+ * The filter is ranked higher than the other filters, so it is the outermost
+ * and the other filters write to the wrapped response.
+ */
+@Component(
+    configurationPid = "org.fipro.inverter.http.compression",
+    scope=ServiceScope.PROTOTYPE)
+@HttpWhiteboardFilterPattern("/*")
+@HttpWhiteboardContextSelect("(osgi.http.whiteboard.context.name=*)")
+@HttpWhiteboardFilterAsyncSupported
+@HttpWhiteboardFilterDispatcher({ DispatcherType.REQUEST, DispatcherType.ASYNC })
+@ServiceRanking(10)
+public class CompressionFilter implements Filter {
+
+    private static final String RESPONSE_ATTRIBUTE = CompressionFilter.class.getName() + ".response";
+
+    @interface CompressionConfig {
+        /**
+         * The minimum size in bytes of a response body to be compressed.
+         */
+        int thresholdBytes() default 1024;
+
+        /**
+         * The compression level from 1 (fastest) to 9 (best).
+         */
+        int level() default 6;
+
+        /**
+         * The maximum number of idle {@link Deflater}s that are kept.
+         */
+        int poolSize() default 32;
+    }
+
+    private DeflaterPool pool;
+    private int threshold;
+
+    @Activate
+    void activate(CompressionConfig config) {
+        this.pool = new DeflaterPool(config.level(), config.poolSize());
+        this.threshold = config.thresholdBytes();
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig)
+            throws ServletException { }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        CompressingResponse compressing;
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            // continue with the wrapper of the initial request, it holds what was written so far
+            compressing = (CompressingResponse) request.getAttribute(RESPONSE_ATTRIBUTE);
+            if (compressing == null) {
+                chain.doFilter(request, response);
+                return;
+            }
+        } else {
+            String encoding = negotiate(httpRequest.getHeader("Accept-Encoding"));
+            if (encoding == null
+                    || "HEAD".equals(httpRequest.getMethod())
+                    || httpRequest.getHeader("Upgrade") != null) {
+                // nothing to compress, or a protocol switch like a WebSocket handshake
+                chain.doFilter(request, response);
+                return;
+            }
+            compressing = new CompressingResponse((HttpServletResponse) response, encoding, pool, threshold);
+            request.setAttribute(RESPONSE_ATTRIBUTE, compressing);
+        }
+
+        boolean success = false;
+        try {
+            chain.doFilter(new CompressingRequest(httpRequest, compressing), compressing);
+            success = true;
+        } finally {
+            if (request.isAsyncStarted()) {
+                // the stream now belongs to the thread that continues the request,
+                // it is finished on close() or complete() and not touched here anymore
+            } else if (success) {
+                compressing.finish();
+            } else {
+                compressing.release();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        pool.close();
+    }
+
+    /**
+     * @return "gzip" or "deflate" if the client accepts it, gzip preferred,
+     *         <code>null</code> otherwise.
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean deflate = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim().toLowerCase();
+            if (tokens.length > 1 && tokens[1].trim().matches("q\\s*=\\s*0(\\.0*)?")) {
+                continue;
+            }
+            if (coding.equals("gzip") || coding.equals("*")) {
+                return "gzip";
+            }
+            deflate |= coding.equals("deflate");
+        }
+        return deflate ? "deflate" : null;
+    }
+}
\ No newline at end of file
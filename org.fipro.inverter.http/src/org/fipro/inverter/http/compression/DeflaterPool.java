@@ -0,0 +1,43 @@
+package org.fipro.inverter.http.compression;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Bounded pool of {@link Deflater} instances, so the native zlib state is not
+ * allocated and freed for every compressed response.
+ */
+final class DeflaterPool {
+
+    private final int level;
+    // raw deflate streams for gzip, the gzip framing is written separately
+    private final BlockingQueue<Deflater> raw;
+    // zlib wrapped streams for deflate
+    private final BlockingQueue<Deflater> zlib;
+
+    DeflaterPool(int level, int size) {
+        this.level = level;
+        this.raw = new ArrayBlockingQueue<>(size);
+        this.zlib = new ArrayBlockingQueue<>(size);
+    }
+
+    Deflater borrow(boolean nowrap) {
+        Deflater deflater = (nowrap ? this.raw : this.zlib).poll();
+        return (deflater != null) ? deflater : new Deflater(this.level, nowrap);
+    }
+
+    void release(Deflater deflater, boolean nowrap) {
+        deflater.reset();
+        if (!(nowrap ? this.raw : this.zlib).offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    void close() {
+        this.raw.forEach(Deflater::end);
+        this.raw.clear();
+        this.zlib.forEach(Deflater::end);
+        this.zlib.clear();
+    }
+}
@@ -11,6 +11,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.ServiceScope;
 import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardContextSelect;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardServletAsyncSupported;
 import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardServletPattern;
 
 @Component(
@@ -18,6 +19,7 @@ import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardServletPa
     scope=ServiceScope.PROTOTYPE)
 @HttpWhiteboardServletPattern("/image")
 @HttpWhiteboardContextSelect("(osgi.http.whiteboard.context.name=eclipse)")
+@HttpWhiteboardServletAsyncSupported
 public class ImageServlet extends HttpServlet {
 
     private static final long serialVersionUID = 1L;
@@ -0,0 +1,521 @@
+package org.fipro.inverter.http.eclipse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+
+/**
+ * Two-tier cache for the resources that are proxied from a remote origin.
+ * <p>
+ * Every fetched resource is stored content-addressed on disk, named by the
+ * SHA-256 of its content. Small resources are additionally kept in a size
+ * bounded in-memory LRU. After the configured TTL an entry is revalidated
+ * against the origin with <code>If-None-Match</code> and
+ * <code>If-Modified-Since</code>, and the cached content is served as long as
+ * the origin answers with <code>304 Not Modified</code> or is not reachable.
+ * <p>
+ * Resources the origin does not provide are remembered for a short time, so
+ * requests for missing paths do not all go to the origin. The disk tier is
+ * bounded as well, evicted and replaced content files are deleted.
+ */
+@Component(
+    configurationPid = "org.fipro.inverter.http.eclipse.cache",
+    service = ResourceCache.class)
+public class ResourceCache {
+
+    @interface CacheConfig {
+        /**
+         * The origin the resources are fetched from, e.g. a local HTTP stub
+         * for testing.
+         */
+        String origin() default "https://eclipse.dev/";
+
+        /**
+         * The seconds after which a cached resource is revalidated.
+         */
+        long ttlSeconds() default 300;
+
+        /**
+         * The maximum size of the in-memory tier in bytes.
+         */
+        long memoryMaxBytes() default 8 * 1024 * 1024;
+
+        /**
+         * The maximum size in bytes of a resource that is kept in memory.
+         */
+        int memoryEntryMaxBytes() default 64 * 1024;
+
+        /**
+         * The maximum size of the disk tier in bytes.
+         */
+        long diskMaxBytes() default 256 * 1024 * 1024;
+
+        /**
+         * The seconds for which a resource the origin does not provide is
+         * answered as missing without asking the origin again.
+         */
+        long negativeTtlSeconds() default 30;
+
+        /**
+         * The maximum number of missing resources that are remembered.
+         */
+        int negativeMaxEntries() default 10000;
+
+        /**
+         * The directory of the disk tier, empty to use a new directory in the
+         * temporary directory that only the current user can access and that
+         * is deleted on deactivation.
+         */
+        String directory() default "";
+    }
+
+    private static final class CachedResource {
+        final String hash;
+        final Path file;
+        final String etag;
+        final String lastModified;
+        volatile long validatedAt;
+
+        CachedResource(String hash, Path file, String etag, String lastModified, long validatedAt) {
+            this.hash = hash;
+            this.file = file;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.validatedAt = validatedAt;
+        }
+    }
+
+    /**
+     * The names of the content files in the disk tier.
+     */
+    private static final Pattern CONTENT_FILE = Pattern.compile("[0-9a-f]{64}|download.*\\.tmp");
+
+    private final Map<String, CachedResource> index = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<CachedResource>> fetches = new ConcurrentHashMap<>();
+    private final MemoryTier memory = new MemoryTier();
+    private final DiskTier disk = new DiskTier();
+    private final Misses misses = new Misses();
+
+    private HttpClient client;
+    private String origin;
+    private long ttlMillis;
+    private int memoryEntryMaxBytes;
+    private Path directory;
+    private boolean temporary;
+
+    @Activate
+    void activate(CacheConfig config) throws IOException {
+        this.client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+        this.origin = config.origin();
+        this.ttlMillis = config.ttlSeconds() * 1000;
+        this.memoryEntryMaxBytes = config.memoryEntryMaxBytes();
+        this.memory.maxBytes = config.memoryMaxBytes();
+        this.disk.maxBytes = config.diskMaxBytes();
+        this.misses.ttlMillis = config.negativeTtlSeconds() * 1000;
+        this.misses.maxEntries = config.negativeMaxEntries();
+        this.temporary = config.directory().isEmpty();
+        if (this.temporary) {
+            // not a fixed shared path, another local user could create it
+            // upfront and swap the content files that are served
+            this.directory = Files.createTempDirectory("fipro-resource-cache");
+        } else {
+            this.directory = Paths.get(config.directory());
+            Files.createDirectories(this.directory);
+            deleteStaleFiles();
+        }
+    }
+
+    @Deactivate
+    void deactivate() {
+        if (this.temporary) {
+            try {
+                deleteStaleFiles();
+            } catch (IOException e) {
+                // left to the cleanup of the temporary directory
+            }
+            delete(this.directory);
+        }
+    }
+
+    Path getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * The index only lives in memory, so the content files of a previous run
+     * can not be served anymore and would fill the disk tier forever.
+     */
+    private void deleteStaleFiles() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            files.filter(file -> CONTENT_FILE.matcher(file.getFileName().toString()).matches())
+                .forEach(ResourceCache::delete);
+        }
+    }
+
+    /**
+     * @param name
+     *            The name of the resource relative to the origin.
+     * @return A {@link URL} to the cached content of the resource, or
+     *         <code>null</code> if the origin does not provide it.
+     */
+    public URL getResource(String name) {
+        // a second attempt if the content was evicted in between
+        for (int attempt = 0; attempt < 2; attempt++) {
+            CachedResource cached = this.index.get(name);
+            if (cached == null || isExpired(cached)) {
+                if (this.misses.contains(name)) {
+                    return null;
+                }
+                cached = load(name);
+            }
+            if (cached == null) {
+                return null;
+            }
+            URL url = toURL(name, cached);
+            if (url != null) {
+                return url;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fetches the resource once for all concurrent requests of the same name.
+     * The pending fetch is removed when it is done, so only the names that are
+     * fetched right now are held.
+     */
+    private CachedResource load(String name) {
+        CompletableFuture<CachedResource> fetch = new CompletableFuture<>();
+        CompletableFuture<CachedResource> running = this.fetches.putIfAbsent(name, fetch);
+        if (running != null) {
+            return running.join();
+        }
+        try {
+            CachedResource cached = this.index.get(name);
+            if (cached == null || isExpired(cached)) {
+                cached = fetch(name, cached);
+            }
+            fetch.complete(cached);
+            return cached;
+        } catch (RuntimeException | Error e) {
+            fetch.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.fetches.remove(name, fetch);
+        }
+    }
+
+    private boolean isExpired(CachedResource cached) {
+        return System.currentTimeMillis() - cached.validatedAt > this.ttlMillis;
+    }
+
+    private CachedResource fetch(String name, CachedResource previous) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(this.origin + name))
+            .timeout(Duration.ofSeconds(30));
+        if (previous != null && previous.etag != null) {
+            request.header("If-None-Match", previous.etag);
+        }
+        if (previous != null && previous.lastModified != null) {
+            request.header("If-Modified-Since", previous.lastModified);
+        }
+
+        Path download = null;
+        try {
+            download = Files.createTempFile(this.directory, "download", ".tmp");
+            HttpResponse<Path> response = this.client.send(
+                request.build(), 
+                HttpResponse.BodyHandlers.ofFile(download));
+
+            if (response.statusCode() == 304 && previous != null) {
+                previous.validatedAt = System.currentTimeMillis();
+                return previous;
+            }
+            if (response.statusCode() >= 500 && previous != null) {
+                // serve the stale content while the origin fails
+                previous.validatedAt = System.currentTimeMillis();
+                return previous;
+            }
+            if (response.statusCode() != 200) {
+                if (previous != null && this.index.remove(name, previous)) {
+                    release(previous.hash);
+                }
+                this.misses.add(name);
+                return null;
+            }
+
+            String hash = hash(download);
+            Path file = this.directory.resolve(hash);
+            Files.move(download, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long size = Files.size(file);
+
+            if (size <= this.memoryEntryMaxBytes) {
+                this.memory.put(hash, Files.readAllBytes(file));
+            }
+
+            CachedResource cached = new CachedResource(
+                hash,
+                file,
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null),
+                System.currentTimeMillis());
+            this.index.put(name, cached);
+            if (previous != null && !previous.hash.equals(hash)) {
+                release(previous.hash);
+            }
+            for (String evicted : this.disk.add(hash, size)) {
+                evict(evicted);
+            }
+            return cached;
+        } catch (IOException e) {
+            // serve the stale content if the origin is not reachable
+            if (previous == null) {
+                this.misses.add(name);
+            }
+            return previous;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return previous;
+        } finally {
+            if (download != null) {
+                try {
+                    Files.deleteIfExists(download);
+                } catch (IOException e) {
+                    // cleaned up with the next restart of the OS
+                }
+            }
+        }
+    }
+
+    private URL toURL(String name, CachedResource cached) {
+        byte[] content = this.memory.get(cached.hash);
+        try {
+            if (content != null) {
+                return new URL("fipro-cache", null, -1, name, new MemoryURLStreamHandler(content));
+            }
+            if (Files.exists(cached.file)) {
+                this.disk.touch(cached.hash);
+                return cached.file.toUri().toURL();
+            }
+        } catch (MalformedURLException e) {
+            // fall through and fetch again
+        }
+        this.index.remove(name, cached);
+        return null;
+    }
+
+    /**
+     * Deletes the content if no other resource has the same content.
+     */
+    private void release(String hash) {
+        if (this.index.values().stream().noneMatch(cached -> cached.hash.equals(hash))) {
+            this.disk.remove(hash);
+            this.memory.remove(hash);
+            delete(this.directory.resolve(hash));
+        }
+    }
+
+    /**
+     * Drops the content and every resource with that content.
+     */
+    private void evict(String hash) {
+        this.index.values().removeIf(cached -> cached.hash.equals(hash));
+        this.memory.remove(hash);
+        delete(this.directory.resolve(hash));
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // an open file on Windows, deleted as stale with the next start
+        }
+    }
+
+    private static String hash(Path file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is supported by every Java platform", e);
+        }
+    }
+
+    /**
+     * Byte bounded LRU of resource contents, keyed by content hash.
+     */
+    private static final class MemoryTier {
+        private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+        long maxBytes;
+
+        synchronized byte[] get(String hash) {
+            return this.entries.get(hash);
+        }
+
+        synchronized void put(String hash, byte[] content) {
+            byte[] previous = this.entries.put(hash, content);
+            if (previous != null) {
+                this.bytes -= previous.length;
+            }
+            this.bytes += content.length;
+            Iterator<byte[]> iterator = this.entries.values().iterator();
+            while (this.bytes > this.maxBytes && iterator.hasNext()) {
+                this.bytes -= iterator.next().length;
+                iterator.remove();
+            }
+        }
+
+        synchronized void remove(String hash) {
+            byte[] previous = this.entries.remove(hash);
+            if (previous != null) {
+                this.bytes -= previous.length;
+            }
+        }
+    }
+
+    /**
+     * Byte bounded LRU of the content files on disk, keyed by content hash.
+     */
+    private static final class DiskTier {
+        private final LinkedHashMap<String, Long> sizes = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+        long maxBytes;
+
+        synchronized void touch(String hash) {
+            this.sizes.get(hash);
+        }
+
+        /**
+         * @return The hashes of the least recently used files that have to be
+         *         deleted to stay in the limit. Never the added one, so an
+         *         oversized resource is still served until the next addition.
+         */
+        synchronized List<String> add(String hash, long size) {
+            Long previous = this.sizes.put(hash, size);
+            if (previous != null) {
+                this.bytes -= previous;
+            }
+            this.bytes += size;
+            List<String> evicted = new ArrayList<>();
+            Iterator<Map.Entry<String, Long>> iterator = this.sizes.entrySet().iterator();
+            while (this.bytes > this.maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                if (!eldest.getKey().equals(hash)) {
+                    this.bytes -= eldest.getValue();
+                    evicted.add(eldest.getKey());
+                    iterator.remove();
+                }
+            }
+            return evicted;
+        }
+
+        synchronized void remove(String hash) {
+            Long previous = this.sizes.remove(hash);
+            if (previous != null) {
+                this.bytes -= previous;
+            }
+        }
+    }
+
+    /**
+     * Count bounded negative cache of the resources the origin does not
+     * provide, with the time until which they are answered as missing.
+     */
+    private static final class Misses {
+        private final LinkedHashMap<String, Long> expiries = new LinkedHashMap<>();
+        long ttlMillis;
+        int maxEntries;
+
+        synchronized boolean contains(String name) {
+            Long expiry = this.expiries.get(name);
+            if (expiry == null) {
+                return false;
+            }
+            if (expiry < System.currentTimeMillis()) {
+                this.expiries.remove(name);
+                return false;
+            }
+            return true;
+        }
+
+        synchronized void add(String name) {
+            if (this.ttlMillis <= 0) {
+                return;
+            }
+            // re-insert, so the iteration order stays the expiry order
+            this.expiries.remove(name);
+            this.expiries.put(name, System.currentTimeMillis() + this.ttlMillis);
+            Iterator<Long> iterator = this.expiries.values().iterator();
+            while (this.expiries.size() > this.maxEntries && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Serves the content of an in-memory resource via a {@link URL}.
+     */
+    private static final class MemoryURLStreamHandler extends URLStreamHandler {
+        private final byte[] content;
+
+        MemoryURLStreamHandler(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        protected URLConnection openConnection(URL url) {
+            return new URLConnection(url) {
+                @Override
+                public void connect() { }
+
+                @Override
+                public InputStream getInputStream() {
+                    return new ByteArrayInputStream(MemoryURLStreamHandler.this.content);
+                }
+
+                @Override
+                public long getContentLengthLong() {
+                    return MemoryURLStreamHandler.this.content.length;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.fipro.inverter.http.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram of latencies in microseconds, similar to an
+ * HdrHistogram. Every power of two is split into 16 linear sub-buckets, so a
+ * recorded value is reported with a relative error of at most 1/16.
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// 2^40 microseconds are about 12 days, anything above is clamped
+	private static final int MAX_MAGNITUDE = 40;
+
+	private final AtomicLongArray counts = new AtomicLongArray((MAX_MAGNITUDE + 2) * SUB_BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+
+	public void recordNanos(long nanos) {
+		long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+		this.counts.incrementAndGet(indexOf(micros));
+		this.count.increment();
+		this.sum.add(micros);
+	}
+
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	/**
+	 * @return The sum of all recorded values in microseconds.
+	 */
+	public long getSumMicros() {
+		return this.sum.sum();
+	}
+
+	/**
+	 * @param quantiles
+	 *            The requested quantiles, each between 0 and 1, in ascending
+	 *            order.
+	 * @return The upper bound in microseconds of the bucket that contains the
+	 *         value at the given quantile, for every given quantile.
+	 */
+	public long[] getValuesAtQuantiles(double... quantiles) {
+		long[] snapshot = new long[this.counts.length()];
+		long total = 0;
+		for (int i = 0; i < snapshot.length; i++) {
+			snapshot[i] = this.counts.get(i);
+			total += snapshot[i];
+		}
+
+		long[] values = new long[quantiles.length];
+		if (total == 0) {
+			return values;
+		}
+		int q = 0;
+		long seen = 0;
+		for (int i = 0; i < snapshot.length && q < quantiles.length; i++) {
+			seen += snapshot[i];
+			while (q < quantiles.length && seen >= Math.ceil(quantiles[q] * total) && seen > 0) {
+				values[q++] = upperBoundOf(i);
+			}
+		}
+		return values;
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int magnitude = Math.min(63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS, MAX_MAGNITUDE);
+		long subBucket = Math.min(value >>> magnitude, 2 * SUB_BUCKETS - 1) - SUB_BUCKETS;
+		return SUB_BUCKETS + magnitude * SUB_BUCKETS + (int) subBucket;
+	}
+
+	static long upperBoundOf(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int magnitude = (index - SUB_BUCKETS) / SUB_BUCKETS;
+		long subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+		return ((subBucket + 1) << magnitude) - 1;
+	}
+}
@@ -0,0 +1,93 @@
+package org.fipro.inverter.http.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jakarta.servlet.Servlet;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.fipro.inverter.http.metrics.RequestMetrics.PatternMetrics;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ServiceScope;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardServletAsyncSupported;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardServletPattern;
+
+/**
+ * Exposes the {@link RequestMetrics} in the Prometheus text format.
+ */
+@Component(
+    service=Servlet.class,
+    scope=ServiceScope.PROTOTYPE)
+@HttpWhiteboardServletPattern("/metrics")
+@HttpWhiteboardServletAsyncSupported
+public class MetricsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    @Reference
+    private RequestMetrics metrics;
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+
+        resp.setContentType("text/plain; version=0.0.4");
+        resp.setCharacterEncoding("UTF-8");
+        PrintWriter writer = resp.getWriter();
+
+        Map<String, PatternMetrics> sorted = new TreeMap<>(metrics.getMetrics());
+
+        writer.println("# HELP fipro_http_requests_total Completed requests per servlet pattern.");
+        writer.println("# TYPE fipro_http_requests_total counter");
+        sorted.forEach((pattern, m) -> 
+            writer.println("fipro_http_requests_total" + labels(pattern) + " " + m.requests.sum()));
+
+        writer.println("# HELP fipro_http_request_errors_total Failed requests per servlet pattern.");
+        writer.println("# TYPE fipro_http_request_errors_total counter");
+        sorted.forEach((pattern, m) -> 
+            writer.println("fipro_http_request_errors_total" + labels(pattern) + " " + m.errors.sum()));
+
+        writer.println("# HELP fipro_http_requests_in_flight Requests currently processed per servlet pattern.");
+        writer.println("# TYPE fipro_http_requests_in_flight gauge");
+        sorted.forEach((pattern, m) -> 
+            writer.println("fipro_http_requests_in_flight" + labels(pattern) + " " + m.inFlight.sum()));
+
+        writer.println("# HELP fipro_http_request_duration_seconds Request latency per servlet pattern.");
+        writer.println("# TYPE fipro_http_request_duration_seconds summary");
+        sorted.forEach((pattern, m) -> {
+            long[] values = m.latency.getValuesAtQuantiles(QUANTILES);
+            for (int i = 0; i < QUANTILES.length; i++) {
+                writer.println("fipro_http_request_duration_seconds" 
+                    + labels(pattern, QUANTILES[i]) + " " + seconds(values[i]));
+            }
+            writer.println("fipro_http_request_duration_seconds_sum" 
+                + labels(pattern) + " " + seconds(m.latency.getSumMicros()));
+            writer.println("fipro_http_request_duration_seconds_count" 
+                + labels(pattern) + " " + m.latency.getCount());
+        });
+    }
+
+    private static String labels(String pattern) {
+        return "{pattern=\"" + escape(pattern) + "\"}";
+    }
+
+    private static String labels(String pattern, double quantile) {
+        return "{pattern=\"" + escape(pattern) + "\",quantile=\"" + quantile + "\"}";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String seconds(long micros) {
+        return Double.toString(micros / 1_000_000.0);
+    }
+}
@@ -0,0 +1,51 @@
+package org.fipro.inverter.http.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.osgi.service.component.annotations.Component;
+
+/**
+ * Collects request counts, error counts, in-flight requests and latencies per
+ * servlet pattern.
+ */
+@Component(service = RequestMetrics.class)
+public class RequestMetrics {
+
+    public static final class PatternMetrics {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder requests = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder inFlight = new LongAdder();
+    }
+
+    private final Map<String, PatternMetrics> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * Marks the start of a request.
+     * 
+     * @param pattern
+     *            The servlet pattern the request is mapped to.
+     * @return The {@link PatternMetrics} to pass to
+     *         {@link #requestEnded(PatternMetrics, long, boolean)}.
+     */
+    public PatternMetrics requestStarted(String pattern) {
+        PatternMetrics patternMetrics = this.metrics.computeIfAbsent(pattern, p -> new PatternMetrics());
+        patternMetrics.inFlight.increment();
+        return patternMetrics;
+    }
+
+    public void requestEnded(PatternMetrics patternMetrics, long durationNanos, boolean failed) {
+        patternMetrics.inFlight.decrement();
+        patternMetrics.requests.increment();
+        if (failed) {
+            patternMetrics.errors.increment();
+        }
+        patternMetrics.latency.recordNanos(durationNanos);
+    }
+
+    Map<String, PatternMetrics> getMetrics() {
+        return this.metrics;
+    }
+}
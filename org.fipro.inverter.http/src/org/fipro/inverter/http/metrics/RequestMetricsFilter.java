@@ -0,0 +1,105 @@
+package org.fipro.inverter.http.metrics;
+
+import java.io.IOException;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.fipro.inverter.http.metrics.RequestMetrics.PatternMetrics;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ServiceScope;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardContextSelect;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardFilterAsyncSupported;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardFilterPattern;
+
+/**
+ * Records every request in all servlet contexts in the {@link RequestMetrics}.
+ * Requests that are processed asynchronously are recorded when they complete.
+ */
+@Component(scope=ServiceScope.PROTOTYPE)
+@HttpWhiteboardFilterPattern("/*")
+@HttpWhiteboardContextSelect("(osgi.http.whiteboard.context.name=*)")
+@HttpWhiteboardFilterAsyncSupported
+public class RequestMetricsFilter implements Filter {
+
+    @Reference
+    private RequestMetrics metrics;
+
+    @Override
+    public void init(FilterConfig filterConfig)
+            throws ServletException { }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        String pattern = httpRequest.getContextPath() + httpRequest.getHttpServletMapping().getPattern();
+        PatternMetrics patternMetrics = metrics.requestStarted(pattern);
+        long start = System.nanoTime();
+
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(patternMetrics, start));
+            } else {
+                metrics.requestEnded(patternMetrics, System.nanoTime() - start, failed || isError(response));
+            }
+        }
+    }
+
+    @Override
+    public void destroy() { }
+
+    private static boolean isError(ServletResponse response) {
+        return ((HttpServletResponse) response).getStatus() >= 500;
+    }
+
+    private class CompletionListener implements AsyncListener {
+
+        private final PatternMetrics patternMetrics;
+        private final long start;
+        private boolean failed;
+
+        CompletionListener(PatternMetrics patternMetrics, long start) {
+            this.patternMetrics = patternMetrics;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            metrics.requestEnded(
+                this.patternMetrics, 
+                System.nanoTime() - this.start, 
+                this.failed || isError(event.getSuppliedResponse()));
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            this.failed = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            this.failed = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // keep listening if the request is processed asynchronously again
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
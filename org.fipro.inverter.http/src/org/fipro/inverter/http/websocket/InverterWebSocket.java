@@ -0,0 +1,79 @@
+package org.fipro.inverter.http.websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.SuspendToken;
+import org.eclipse.jetty.websocket.api.WebSocketListener;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.fipro.inverter.StringInverter;
+
+/**
+ * One WebSocket connection. Every text frame is inverted and sent back
+ * asynchronously. Frames whose result is not yet written count as in flight.
+ * If the limit is reached, reading from the connection is suspended until the
+ * client has consumed half of the pending results, so a slow reader pushes
+ * back on the sender instead of filling the server memory.
+ */
+class InverterWebSocket implements WebSocketListener, WriteCallback {
+
+    private final StringInverter inverter;
+    private final int maxInFlight;
+
+    private Session session;
+    private int inFlight;
+    private SuspendToken suspended;
+
+    InverterWebSocket(StringInverter inverter, int maxInFlight) {
+        this.inverter = inverter;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public void onWebSocketConnect(Session session) {
+        this.session = session;
+    }
+
+    @Override
+    public void onWebSocketText(String message) {
+        synchronized (this) {
+            if (++inFlight >= maxInFlight && suspended == null) {
+                suspended = session.suspend();
+            }
+        }
+        // frames are delivered one after the other, so the results are sent
+        // in the order of the requests
+        session.getRemote().sendString(inverter.invert(message), this);
+    }
+
+    @Override
+    public void onWebSocketBinary(byte[] payload, int offset, int len) {
+        session.close(StatusCode.BAD_DATA, "Only text frames are supported");
+    }
+
+    @Override
+    public void writeSuccess() {
+        SuspendToken resume = null;
+        synchronized (this) {
+            if (--inFlight <= maxInFlight / 2 && suspended != null) {
+                resume = suspended;
+                suspended = null;
+            }
+        }
+        if (resume != null) {
+            resume.resume();
+        }
+    }
+
+    @Override
+    public void writeFailed(Throwable x) {
+        // the connection is broken, Jetty reports the close via onWebSocketClose
+        session.close(StatusCode.SERVER_ERROR, x.getMessage());
+    }
+
+    @Override
+    public void onWebSocketClose(int statusCode, String reason) { }
+
+    @Override
+    public void onWebSocketError(Throwable cause) { }
+
+}
@@ -0,0 +1,124 @@
+package org.fipro.inverter.http.websocket;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.servlet.Servlet;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.websocket.server.JettyWebSocketServlet;
+import org.eclipse.jetty.websocket.server.JettyWebSocketServletFactory;
+import org.fipro.inverter.StringInverter;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.osgi.service.component.annotations.ServiceScope;
+import org.osgi.service.servlet.whiteboard.propertytypes.HttpWhiteboardServletPattern;
+
+/**
+ * WebSocket endpoint that inverts every text frame over a persistent
+ * connection, e.g. <code>ws://localhost:8080/invert/ws</code>.
+ * <p>
+ * Requires the Jetty WebSocket bundles and the framework property
+ * <code>org.apache.felix.http.jetty.websocket.enable=true</code>, so Felix
+ * Jetty sets up the WebSocket container for the servlet context.
+ */
+@Component(
+    service=Servlet.class,
+    configurationPid = "org.fipro.inverter.http.websocket",
+    scope=ServiceScope.PROTOTYPE)
+@HttpWhiteboardServletPattern("/invert/ws")
+public class InverterWebSocketServlet extends JettyWebSocketServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    @interface WebSocketConfig {
+        /**
+         * The maximum number of frames per connection that are received but
+         * whose result is not yet sent, before reading is suspended.
+         */
+        int maxFramesInFlight() default 64;
+
+        /**
+         * The maximum size of a text message in bytes of its UTF-8 encoding.
+         */
+        int maxMessageSize() default 65536;
+
+        /**
+         * The idle timeout of a connection in seconds.
+         */
+        int idleTimeoutSeconds() default 300;
+    }
+
+    // greedy, so new connections use the cache even if it is started later
+    @Reference(policyOption = ReferencePolicyOption.GREEDY)
+    private StringInverter inverter;
+
+    private WebSocketConfig config;
+
+    private final AtomicBoolean initialized = new AtomicBoolean();
+    private final CountDownLatch initBarrier = new CountDownLatch(1);
+    private volatile ServletException initFailure;
+
+    @Activate
+    void activate(WebSocketConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    protected void configure(JettyWebSocketServletFactory factory) {
+        factory.setMaxTextMessageSize(config.maxMessageSize());
+        factory.setIdleTimeout(Duration.ofSeconds(config.idleTimeoutSeconds()));
+        factory.setCreator((req, resp) -> new InverterWebSocket(inverter, config.maxFramesInFlight()));
+    }
+
+    @Override
+    public void init() throws ServletException {
+        // the WebSocket container is only available once the servlet context
+        // is started, which is not yet the case when the whiteboard
+        // initializes the servlet, so the initialization is delayed to the
+        // first request
+    }
+
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+        if (initialized.compareAndSet(false, true)) {
+            try {
+                delayedInit();
+            } catch (ServletException e) {
+                initFailure = e;
+            } finally {
+                initBarrier.countDown();
+            }
+        } else {
+            try {
+                initBarrier.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException("Interrupted while waiting for the WebSocket initialization", e);
+            }
+        }
+        if (initFailure != null) {
+            throw initFailure;
+        }
+        super.service(req, resp);
+    }
+
+    private void delayedInit() throws ServletException {
+        // Jetty looks up the WebSocket implementation via the context class loader
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(JettyWebSocketServlet.class.getClassLoader());
+        try {
+            super.init();
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+}
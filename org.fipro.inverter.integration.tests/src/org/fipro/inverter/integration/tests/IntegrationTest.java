@@ -3,6 +3,9 @@ package org.fipro.inverter.integration.tests;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
+import java.util.List;
+
+import org.fipro.inverter.AsyncStringInverter;
 import org.fipro.inverter.StringInverter;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,4 +20,13 @@ public class IntegrationTest {
 		assertNotNull(inverter, "No StringInverter service found");
 		assertEquals("nospmiS", inverter.invert("Simpson"));
 	}
+
+	@Test
+	public void shouldInvertWithAsyncService(@InjectService AsyncStringInverter inverter) throws Exception {
+		assertNotNull(inverter, "No AsyncStringInverter service found");
+		assertEquals("nospmiS", inverter.invert("Simpson").getValue());
+		assertEquals(
+			List.of("remoH", "egraM", "nospmiS"),
+			inverter.invertAll(List.of("Homer", "Marge", "Simpson")).getValue());
+	}
 }
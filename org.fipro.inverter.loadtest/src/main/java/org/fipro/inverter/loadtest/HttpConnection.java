@@ -0,0 +1,160 @@
+package org.fipro.inverter.loadtest;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * A minimal HTTP/1.1 client on a single keep-alive socket. The response body
+ * is read and discarded, only the status code and the number of bytes are
+ * reported. This way every worker of the {@link LoadTest} owns exactly one
+ * connection.
+ */
+final class HttpConnection implements AutoCloseable {
+
+	private final InetSocketAddress address;
+	private final int timeoutMillis;
+
+	private Socket socket;
+	private InputStream in;
+	private OutputStream out;
+	private final byte[] skipBuffer = new byte[8192];
+
+	long lastBodyBytes;
+
+	HttpConnection(InetSocketAddress address, int timeoutMillis) {
+		this.address = address;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Sends the request and reads the complete response.
+	 * 
+	 * @return The HTTP status code.
+	 */
+	int send(byte[] request) throws IOException {
+		if (this.socket == null) {
+			connect();
+		}
+		try {
+			this.out.write(request);
+			this.out.flush();
+			return readResponse();
+		} catch (IOException e) {
+			// the connection can not be reused after a failure
+			close();
+			throw e;
+		}
+	}
+
+	private void connect() throws IOException {
+		this.socket = new Socket();
+		this.socket.setTcpNoDelay(true);
+		this.socket.setSoTimeout(this.timeoutMillis);
+		this.socket.connect(this.address, this.timeoutMillis);
+		this.in = new BufferedInputStream(this.socket.getInputStream(), 16384);
+		this.out = this.socket.getOutputStream();
+	}
+
+	private int readResponse() throws IOException {
+		String statusLine = readLine();
+		// HTTP/1.1 200 OK
+		int status = Integer.parseInt(statusLine.substring(9, 12));
+
+		long contentLength = -1;
+		boolean chunked = false;
+		boolean close = false;
+		String header;
+		while (!(header = readLine()).isEmpty()) {
+			int colon = header.indexOf(':');
+			if (colon < 0) {
+				continue;
+			}
+			String name = header.substring(0, colon).trim();
+			String value = header.substring(colon + 1).trim();
+			if (name.equalsIgnoreCase("Content-Length")) {
+				contentLength = Long.parseLong(value);
+			} else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+				chunked = value.equalsIgnoreCase("chunked");
+			} else if (name.equalsIgnoreCase("Connection")) {
+				close = value.equalsIgnoreCase("close");
+			}
+		}
+
+		if (status == 204 || status == 304) {
+			this.lastBodyBytes = 0;
+		} else if (chunked) {
+			this.lastBodyBytes = readChunked();
+		} else if (contentLength >= 0) {
+			skip(contentLength);
+			this.lastBodyBytes = contentLength;
+		} else {
+			// body ends with the connection
+			this.lastBodyBytes = this.in.transferTo(OutputStream.nullOutputStream());
+			close = true;
+		}
+
+		if (close) {
+			close();
+		}
+		return status;
+	}
+
+	private long readChunked() throws IOException {
+		long total = 0;
+		while (true) {
+			String line = readLine();
+			int extension = line.indexOf(';');
+			long size = Long.parseLong((extension < 0 ? line : line.substring(0, extension)).trim(), 16);
+			if (size == 0) {
+				// trailers, terminated by an empty line
+				while (!readLine().isEmpty()) {
+				}
+				return total;
+			}
+			skip(size);
+			total += size;
+			readLine();
+		}
+	}
+
+	private void skip(long count) throws IOException {
+		while (count > 0) {
+			int read = this.in.read(this.skipBuffer, 0, (int) Math.min(count, this.skipBuffer.length));
+			if (read < 0) {
+				throw new EOFException("Connection closed within the response body");
+			}
+			count -= read;
+		}
+	}
+
+	private String readLine() throws IOException {
+		StringBuilder line = new StringBuilder(64);
+		int b;
+		while ((b = this.in.read()) != '\n') {
+			if (b < 0) {
+				throw new EOFException("Connection closed by the server");
+			}
+			if (b != '\r') {
+				line.append((char) b);
+			}
+		}
+		return line.toString();
+	}
+
+	@Override
+	public void close() {
+		if (this.socket != null) {
+			try {
+				this.socket.close();
+			} catch (IOException e) {
+				// nothing to do
+			}
+			this.socket = null;
+		}
+	}
+}
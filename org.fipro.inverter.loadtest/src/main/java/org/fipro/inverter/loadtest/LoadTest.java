@@ -0,0 +1,253 @@
+package org.fipro.inverter.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load generator for the inverter HTTP endpoints.
+ * <p>
+ * Each connection is served by its own worker thread. With a target rate the
+ * load is generated in open-loop mode: the start time of every request is
+ * scheduled upfront and the latency is measured from that intended start
+ * time. If the server falls behind, the waiting time is part of the latency
+ * instead of being hidden by a client that simply sends less
+ * (coordinated omission). Requests that are still due at the end of the run
+ * are not sent, the difference between <code>scheduled</code> and
+ * <code>requests</code> in the report shows that the target rate was not
+ * reached. A rate of 0 runs in closed-loop mode, i.e. as fast
+ * as the connections allow.
+ * <p>
+ * The result is printed as JSON, one entry per payload size.
+ * 
+ * <pre>
+ * java -jar loadtest.jar -url http://localhost:8080 -scenario invert -connections 16 -rate 2000 -sizes 16,1024
+ * </pre>
+ */
+public class LoadTest {
+
+	private final URI base;
+	private final Scenario scenario;
+	private final String file;
+	private final int connections;
+	private final double rate;
+	private final long durationNanos;
+	private final long warmupNanos;
+	private final int timeoutMillis;
+
+	LoadTest(Map<String, String> options) {
+		this.base = URI.create(options.getOrDefault("url", "http://localhost:8080"));
+		this.scenario = Scenario.valueOf(options.getOrDefault("scenario", "invert").toUpperCase(Locale.ROOT));
+		this.file = options.getOrDefault("file", "eclipse_logo.png");
+		this.connections = Integer.parseInt(options.getOrDefault("connections", "16"));
+		this.rate = Double.parseDouble(options.getOrDefault("rate", "1000"));
+		this.durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "30")));
+		this.warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", "5")));
+		this.timeoutMillis = Integer.parseInt(options.getOrDefault("timeout", "10000"));
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = parse(args);
+		if (options.containsKey("help")) {
+			usage(System.out);
+			return;
+		}
+
+		LoadTest loadTest = new LoadTest(options);
+		StringBuilder json = new StringBuilder();
+		json.append("{\n")
+			.append("  \"url\": ").append(quote(loadTest.base.toString())).append(",\n")
+			.append("  \"scenario\": ").append(quote(loadTest.scenario.name().toLowerCase(Locale.ROOT))).append(",\n")
+			.append("  \"connections\": ").append(loadTest.connections).append(",\n")
+			.append("  \"targetRate\": ").append(loadTest.rate).append(",\n")
+			.append("  \"mode\": ").append(quote(loadTest.rate > 0 ? "open-loop" : "closed-loop")).append(",\n")
+			.append("  \"durationSeconds\": ").append(TimeUnit.NANOSECONDS.toSeconds(loadTest.durationNanos)).append(",\n")
+			.append("  \"warmupSeconds\": ").append(TimeUnit.NANOSECONDS.toSeconds(loadTest.warmupNanos)).append(",\n")
+			.append("  \"results\": [");
+
+		int[] sizes = loadTest.scenario.defaultSizes();
+		if (options.containsKey("sizes")) {
+			sizes = Arrays.stream(options.get("sizes").split(",")).mapToInt(size -> Integer.parseInt(size.trim())).toArray();
+		}
+		for (int size : sizes) {
+			if (size > loadTest.scenario.maxPayloadSize()) {
+				throw new IllegalArgumentException("Payload size " + size + " exceeds the maximum of "
+						+ loadTest.scenario.maxPayloadSize() + " for " + loadTest.scenario.name().toLowerCase(Locale.ROOT)
+						+ ", use invert_post for larger payloads");
+			}
+		}
+		for (int i = 0; i < sizes.length; i++) {
+			System.err.println("Running " + loadTest.scenario + " with payload size " + sizes[i]);
+			json.append(i == 0 ? "\n" : ",\n").append(loadTest.run(sizes[i]));
+		}
+		json.append("\n  ]\n}\n");
+
+		String out = options.get("out");
+		if (out != null) {
+			Files.writeString(Path.of(out), json, StandardCharsets.UTF_8);
+		} else {
+			System.out.print(json);
+		}
+	}
+
+	/**
+	 * Runs the load for one payload size and returns the result as JSON
+	 * object.
+	 */
+	String run(int payloadSize) throws InterruptedException {
+		int port = (this.base.getPort() > 0) ? this.base.getPort() : 80;
+		InetSocketAddress address = new InetSocketAddress(this.base.getHost(), port);
+		String path = this.scenario.path(payloadSize);
+		if (this.scenario == Scenario.FILES) {
+			path += this.file;
+		}
+		String basePath = (this.base.getPath() == null) ? "" : this.base.getPath().replaceAll("/$", "");
+		byte[] request = this.scenario.request(this.base.getHost(), port, basePath + path, payloadSize);
+
+		long intervalNanos = (this.rate > 0) ? (long) (TimeUnit.SECONDS.toNanos(1) / this.rate) : 0;
+		long start = System.nanoTime();
+		long measureFrom = start + this.warmupNanos;
+		long end = measureFrom + this.durationNanos;
+		AtomicLong sequence = new AtomicLong();
+
+		List<Recorder> recorders = new ArrayList<>();
+		List<Thread> workers = new ArrayList<>();
+		for (int i = 0; i < this.connections; i++) {
+			Recorder recorder = new Recorder();
+			recorders.add(recorder);
+			Thread worker = new Thread(
+					() -> work(address, request, recorder, sequence, start, intervalNanos, measureFrom, end),
+					"loadtest-" + i);
+			workers.add(worker);
+			worker.start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+
+		Recorder result = Recorder.merge(recorders);
+		double seconds = this.durationNanos / 1e9;
+		return new StringBuilder()
+			.append("    {\n")
+			.append("      \"payloadBytes\": ").append(payloadSize).append(",\n")
+			.append("      \"scheduled\": ").append(intervalNanos > 0 ? this.durationNanos / intervalNanos : result.count()).append(",\n")
+			.append("      \"requests\": ").append(result.count()).append(",\n")
+			.append("      \"errors\": ").append(result.errors).append(",\n")
+			.append("      \"throughput\": ").append(format(result.count() / seconds)).append(",\n")
+			.append("      \"responseBytesPerSecond\": ").append(format(result.bytes / seconds)).append(",\n")
+			.append("      \"latencyMicros\": {")
+			.append(" \"min\": ").append(micros(result.percentile(0)))
+			.append(", \"p50\": ").append(micros(result.percentile(50)))
+			.append(", \"p90\": ").append(micros(result.percentile(90)))
+			.append(", \"p99\": ").append(micros(result.percentile(99)))
+			.append(", \"p999\": ").append(micros(result.percentile(99.9)))
+			.append(", \"max\": ").append(micros(result.percentile(100)))
+			.append(", \"mean\": ").append(format(result.mean() / 1000))
+			.append(" }\n")
+			.append("    }")
+			.toString();
+	}
+
+	private void work(InetSocketAddress address, byte[] request, Recorder recorder,
+			AtomicLong sequence, long start, long intervalNanos, long measureFrom, long end) {
+
+		try (HttpConnection connection = new HttpConnection(address, this.timeoutMillis)) {
+			while (true) {
+				long intended;
+				if (intervalNanos > 0) {
+					intended = start + sequence.getAndIncrement() * intervalNanos;
+					if (intended >= end || System.nanoTime() >= end) {
+						// requests that are still due when the time is over are
+						// reported as the difference between scheduled and sent
+						return;
+					}
+					long wait;
+					while ((wait = intended - System.nanoTime()) > 0) {
+						LockSupport.parkNanos(wait);
+					}
+				} else {
+					intended = System.nanoTime();
+					if (intended >= end) {
+						return;
+					}
+				}
+
+				boolean error;
+				try {
+					int status = connection.send(request);
+					error = status >= 400;
+				} catch (IOException | RuntimeException e) {
+					error = true;
+				}
+				long latency = System.nanoTime() - intended;
+
+				if (intended >= measureFrom) {
+					recorder.record(latency);
+					recorder.bytes += connection.lastBodyBytes;
+					if (error) {
+						recorder.errors++;
+					}
+				}
+			}
+		}
+	}
+
+	static Map<String, String> parse(String[] args) {
+		Map<String, String> options = new HashMap<>();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (!arg.startsWith("-")) {
+				throw new IllegalArgumentException("Unexpected argument " + arg);
+			}
+			String name = arg.replaceFirst("^-+", "");
+			int equals = name.indexOf('=');
+			if (equals > 0) {
+				options.put(name.substring(0, equals), name.substring(equals + 1));
+			} else if (i + 1 < args.length && !args[i + 1].startsWith("-")) {
+				options.put(name, args[++i]);
+			} else {
+				options.put(name, "true");
+			}
+		}
+		return options;
+	}
+
+	private static void usage(PrintStream out) {
+		out.println("Usage: java -jar loadtest.jar [options]");
+		out.println("  -url <url>            base URL of the Jetty, default http://localhost:8080");
+		out.println("  -scenario <name>      invert, invert_post, batch, eclipse_image or files, default invert");
+		out.println("  -file <path>          the file requested in the files scenario, default eclipse_logo.png");
+		out.println("  -connections <n>      number of connections, default 16");
+		out.println("  -rate <n>             target requests per second, 0 for closed-loop, default 1000");
+		out.println("  -duration <seconds>   measured duration per payload size, default 30");
+		out.println("  -warmup <seconds>     unmeasured warmup per payload size, default 5");
+		out.println("  -sizes <n,n,...>      payload sizes in bytes, default 16,1024,65536, 16,1024,4096 for invert");
+		out.println("  -timeout <millis>     connect and read timeout, default 10000");
+		out.println("  -out <file>           write the JSON report to a file instead of stdout");
+	}
+
+	private static String micros(long nanos) {
+		return format(nanos / 1000d);
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.1f", value);
+	}
+
+	private static String quote(String value) {
+		return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+	}
+}
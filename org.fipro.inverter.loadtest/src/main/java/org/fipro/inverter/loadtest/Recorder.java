@@ -0,0 +1,71 @@
+package org.fipro.inverter.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects the latencies of one worker. Exact values are kept, so the
+ * percentiles are not distorted by bucketing. The recorders of all workers are
+ * merged once a run is finished.
+ */
+final class Recorder {
+
+	private long[] latencies = new long[1024];
+	private int count;
+
+	long errors;
+	long bytes;
+
+	void record(long latencyNanos) {
+		if (this.count == this.latencies.length) {
+			this.latencies = Arrays.copyOf(this.latencies, this.count * 2);
+		}
+		this.latencies[this.count++] = latencyNanos;
+	}
+
+	static Recorder merge(Iterable<Recorder> recorders) {
+		Recorder merged = new Recorder();
+		int total = 0;
+		for (Recorder recorder : recorders) {
+			total += recorder.count;
+		}
+		merged.latencies = new long[Math.max(total, 1)];
+		for (Recorder recorder : recorders) {
+			System.arraycopy(recorder.latencies, 0, merged.latencies, merged.count, recorder.count);
+			merged.count += recorder.count;
+			merged.errors += recorder.errors;
+			merged.bytes += recorder.bytes;
+		}
+		Arrays.sort(merged.latencies, 0, merged.count);
+		return merged;
+	}
+
+	int count() {
+		return this.count;
+	}
+
+	/**
+	 * Only valid on a merged, and therefore sorted, recorder.
+	 * 
+	 * @param percentile
+	 *            The percentile between 0 and 100.
+	 * @return The latency in nanoseconds.
+	 */
+	long percentile(double percentile) {
+		if (this.count == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(percentile / 100 * this.count) - 1;
+		return this.latencies[Math.max(0, Math.min(index, this.count - 1))];
+	}
+
+	double mean() {
+		if (this.count == 0) {
+			return 0;
+		}
+		double sum = 0;
+		for (int i = 0; i < this.count; i++) {
+			sum += this.latencies[i];
+		}
+		return sum / this.count;
+	}
+}
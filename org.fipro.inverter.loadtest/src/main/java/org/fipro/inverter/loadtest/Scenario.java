@@ -0,0 +1,174 @@
+package org.fipro.inverter.loadtest;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The endpoints that can be driven by the {@link LoadTest}. Each scenario
+ * creates the raw HTTP/1.1 request for a given payload size.
+ */
+public enum Scenario {
+
+	/**
+	 * <code>GET /invert?value=...</code>, the payload is part of the request
+	 * line, so larger payloads need {@link #INVERT_POST}.
+	 */
+	INVERT {
+		@Override
+		String path(int payloadSize) {
+			return "/invert?value=" + URLEncoder.encode(payload(payloadSize), StandardCharsets.UTF_8);
+		}
+
+		@Override
+		int maxPayloadSize() {
+			// Jetty rejects request headers over 8 KiB by default with 431
+			return 4096;
+		}
+	},
+
+	/**
+	 * <code>POST /invert</code> with the payload as lines of text.
+	 */
+	INVERT_POST {
+		@Override
+		String method() {
+			return "POST";
+		}
+
+		@Override
+		String path(int payloadSize) {
+			return "/invert";
+		}
+
+		@Override
+		byte[] body(int payloadSize) {
+			StringBuilder lines = new StringBuilder(payload(payloadSize));
+			for (int i = 80; i < lines.length(); i += 81) {
+				lines.setCharAt(i, '\n');
+			}
+			return lines.toString().getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		String contentType() {
+			return "text/plain; charset=UTF-8";
+		}
+	},
+
+	/**
+	 * <code>POST /invert/batch</code> with a JSON array of strings.
+	 */
+	BATCH {
+		@Override
+		String method() {
+			return "POST";
+		}
+
+		@Override
+		String path(int payloadSize) {
+			return "/invert/batch";
+		}
+
+		@Override
+		byte[] body(int payloadSize) {
+			StringBuilder json = new StringBuilder(payloadSize + 16).append('[');
+			String value = payload(Math.min(payloadSize, 64));
+			while (json.length() < payloadSize) {
+				if (json.length() > 1) {
+					json.append(',');
+				}
+				json.append('"').append(value).append('"');
+			}
+			return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		String contentType() {
+			return "application/json";
+		}
+	},
+
+	/**
+	 * <code>GET /eclipse/image</code>, the payload size is ignored.
+	 */
+	ECLIPSE_IMAGE {
+		@Override
+		String path(int payloadSize) {
+			return "/eclipse/image";
+		}
+	},
+
+	/**
+	 * <code>GET /files/...</code>, the file is configured via
+	 * <code>-file</code>, the payload size is ignored.
+	 */
+	FILES {
+		@Override
+		String path(int payloadSize) {
+			return "/files/";
+		}
+	};
+
+	String method() {
+		return "GET";
+	}
+
+	/**
+	 * @return The largest payload size the server accepts for this scenario.
+	 */
+	int maxPayloadSize() {
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * @return The payload sizes that are run if none are configured.
+	 */
+	int[] defaultSizes() {
+		int max = maxPayloadSize();
+		return (max < 65536) ? new int[] { 16, 1024, max } : new int[] { 16, 1024, 65536 };
+	}
+
+	abstract String path(int payloadSize);
+
+	byte[] body(int payloadSize) {
+		return null;
+	}
+
+	String contentType() {
+		return null;
+	}
+
+	/**
+	 * Creates the raw request that is sent repeatedly on a keep-alive
+	 * connection.
+	 */
+	byte[] request(String host, int port, String path, int payloadSize) {
+		byte[] body = body(payloadSize);
+		StringBuilder request = new StringBuilder()
+				.append(method()).append(' ').append(path).append(" HTTP/1.1\r\n")
+				.append("Host: ").append(host).append(':').append(port).append("\r\n")
+				.append("User-Agent: fipro-loadtest\r\n");
+		if (body != null) {
+			request.append("Content-Type: ").append(contentType()).append("\r\n")
+					.append("Content-Length: ").append(body.length).append("\r\n");
+		}
+		request.append("\r\n");
+
+		byte[] head = request.toString().getBytes(StandardCharsets.US_ASCII);
+		if (body == null) {
+			return head;
+		}
+		byte[] result = new byte[head.length + body.length];
+		System.arraycopy(head, 0, result, 0, head.length);
+		System.arraycopy(body, 0, result, head.length, body.length);
+		return result;
+	}
+
+	static String payload(int size) {
+		StringBuilder builder = new StringBuilder(size);
+		for (int i = 0; i < size; i++) {
+			builder.append((char) ('a' + i % 26));
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,64 @@
+package org.fipro.inverter.provider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileInverterImplTest {
+
+	@Test
+	public void shouldInvertFileInChunks(@TempDir Path dir) throws IOException {
+		String content = "Homer J\u00f6rg \u20ac\uD83D\uDE00 Simpson\nMarge";
+		Path input = Files.writeString(dir.resolve("input.txt"), content, StandardCharsets.UTF_8);
+		Path output = dir.resolve("output.txt");
+
+		FileInverterImpl inverter = new FileInverterImpl();
+		// small chunks to force splits inside multi-byte characters
+		inverter.chunkSize = 3;
+		inverter.invert(input, output);
+
+		assertEquals(
+			new StringBuilder(content).reverse().toString(),
+			Files.readString(output, StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void shouldIgnoreNonPositiveChunkSize(@TempDir Path dir) throws IOException {
+		Path input = Files.writeString(dir.resolve("input.txt"), "Simpson", StandardCharsets.UTF_8);
+		Path output = dir.resolve("output.txt");
+
+		FileInverterImpl inverter = new FileInverterImpl();
+		inverter.activate(config(0));
+		inverter.invert(input, output);
+
+		assertEquals(FileInverterImpl.MIN_CHUNK_SIZE, inverter.chunkSize);
+		assertEquals("nospmiS", Files.readString(output, StandardCharsets.UTF_8));
+	}
+
+	private static FileInverterImpl.FileInverterConfig config(int chunkSize) {
+		return new FileInverterImpl.FileInverterConfig() {
+
+			@Override
+			public Class<? extends Annotation> annotationType() {
+				return FileInverterImpl.FileInverterConfig.class;
+			}
+
+			@Override
+			public int chunkSize() {
+				return chunkSize;
+			}
+
+			@Override
+			public int parallelism() {
+				return 0;
+			}
+		};
+	}
+}
@@ -2,6 +2,9 @@ package org.fipro.inverter.provider;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.io.IOException;
+import java.nio.CharBuffer;
+
 import org.fipro.inverter.StringInverter;
 import org.junit.jupiter.api.Test;
 
@@ -12,4 +15,43 @@ public class StringInverterImplTest {
 		StringInverter inverter = new StringInverterImpl();
 		assertEquals("nospmiS", inverter.invert("Simpson"));
 	}
+
+	@Test
+	public void shouldInvertIntoAppendable() throws IOException {
+		StringInverter inverter = new StringInverterImpl();
+		StringBuilder builder = new StringBuilder("> ");
+		inverter.invert("Simpson", builder);
+		assertEquals("> nospmiS", builder.toString());
+	}
+
+	@Test
+	public void shouldInvertIntoCharBuffer() {
+		StringInverter inverter = new StringInverterImpl();
+		CharBuffer buffer = CharBuffer.allocate(7);
+		inverter.invert("Simpson", buffer);
+		assertEquals("nospmiS", buffer.flip().toString());
+	}
+
+	@Test
+	public void shouldInvertCharArrayInPlace() {
+		StringInverter inverter = new StringInverterImpl();
+		char[] chars = "Homer Simpson".toCharArray();
+		inverter.invert(chars, 6, 7);
+		assertEquals("Homer nospmiS", new String(chars));
+	}
+
+	@Test
+	public void shouldKeepSurrogatePairs() throws IOException {
+		StringInverter inverter = new StringInverterImpl();
+		String input = "a\uD83D\uDE00b";
+		String expected = new StringBuilder(input).reverse().toString();
+
+		StringBuilder builder = new StringBuilder();
+		inverter.invert(input, builder);
+		assertEquals(expected, builder.toString());
+
+		char[] chars = input.toCharArray();
+		inverter.invert(chars);
+		assertEquals(expected, new String(chars));
+	}
 }
@@ -0,0 +1,109 @@
+package org.fipro.inverter.provider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fipro.inverter.AsyncStringInverter;
+import org.fipro.inverter.StringInverter;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.osgi.util.promise.Promise;
+import org.osgi.util.promise.PromiseFactory;
+
+@Component
+public class AsyncStringInverterImpl implements AsyncStringInverter {
+
+	@interface AsyncConfig {
+		/**
+		 * Use a virtual thread per task if the runtime supports it (Java 21+).
+		 * Inverting is CPU bound, so the bounded pool is the default.
+		 */
+		boolean virtualThreads() default false;
+
+		/**
+		 * The number of threads used for inverting if virtual threads are not
+		 * used, 0 to use one per available processor. Also the number of
+		 * tasks a batch is split into.
+		 */
+		int threads() default 0;
+	}
+
+	// greedy, so the promises are resolved through the cache once it is there
+	@Reference(policyOption = ReferencePolicyOption.GREEDY)
+	private StringInverter inverter;
+
+	private ExecutorService executor;
+	private PromiseFactory promiseFactory;
+	private int threads;
+
+	@Activate
+	void activate(AsyncConfig config) {
+		this.threads = config.threads() > 0 ? config.threads() : Runtime.getRuntime().availableProcessors();
+		if (config.virtualThreads()) {
+			this.executor = newVirtualThreadPerTaskExecutor();
+		}
+		if (this.executor == null) {
+			AtomicInteger threadCount = new AtomicInteger();
+			ThreadFactory threadFactory = runnable -> {
+				Thread thread = new Thread(runnable, "fipro-inverter-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			};
+			this.executor = Executors.newFixedThreadPool(this.threads, threadFactory);
+		}
+		this.promiseFactory = new PromiseFactory(this.executor);
+	}
+
+	@Deactivate
+	void deactivate() {
+		this.executor.shutdown();
+	}
+
+	@Override
+	public Promise<String> invert(String input) {
+		return this.promiseFactory.submit(() -> this.inverter.invert(input));
+	}
+
+	@Override
+	public Promise<List<String>> invertAll(Collection<String> inputs) {
+		String[] values = inputs.toArray(new String[0]);
+		if (values.length == 0) {
+			return this.promiseFactory.resolved(List.of());
+		}
+
+		// one task per thread instead of one per value to keep the overhead low
+		int chunkSize = (values.length + this.threads - 1) / this.threads;
+		List<Promise<Void>> chunks = new ArrayList<>();
+		for (int start = 0; start < values.length; start += chunkSize) {
+			int from = start;
+			int to = Math.min(start + chunkSize, values.length);
+			chunks.add(this.promiseFactory.submit(() -> {
+				for (int i = from; i < to; i++) {
+					values[i] = this.inverter.invert(values[i]);
+				}
+				return null;
+			}));
+		}
+		return this.promiseFactory.all(chunks).map(done -> Arrays.asList(values));
+	}
+
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			// a Java 21 method, the bundle still targets JavaSE-17
+			return (ExecutorService) Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor")
+					.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package org.fipro.inverter.provider;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.fipro.inverter.FileInverter;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+
+/**
+ * {@link FileInverter} that memory-maps the input and output file and inverts
+ * the content chunk by chunk in parallel. As the chunks are mapped regions and
+ * not copied to the heap, the heap usage does not depend on the file size.
+ */
+@Component
+public class FileInverterImpl implements FileInverter {
+
+	@interface FileInverterConfig {
+		/**
+		 * The size in bytes of the chunks that are inverted in parallel, at
+		 * least {@value FileInverterImpl#MIN_CHUNK_SIZE}.
+		 */
+		int chunkSize() default 16 * 1024 * 1024;
+
+		/**
+		 * The parallelism of the fork-join pool, 0 to use the common pool.
+		 */
+		int parallelism() default 0;
+	}
+
+	static final int MIN_CHUNK_SIZE = 4096;
+
+	int chunkSize = 16 * 1024 * 1024;
+	ForkJoinPool pool = ForkJoinPool.commonPool();
+
+	@Activate
+	void activate(FileInverterConfig config) {
+		// a chunk must contain at least one character, otherwise the file is never consumed
+		this.chunkSize = Math.max(MIN_CHUNK_SIZE, config.chunkSize());
+		if (config.parallelism() > 0) {
+			this.pool = new ForkJoinPool(config.parallelism());
+		}
+	}
+
+	@Deactivate
+	void deactivate() {
+		if (this.pool != ForkJoinPool.commonPool()) {
+			this.pool.shutdown();
+		}
+	}
+
+	@Override
+	public void invert(Path input, Path output) throws IOException {
+		try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+				RandomAccessFile outFile = new RandomAccessFile(output.toFile(), "rw")) {
+
+			long size = in.size();
+			// size the output upfront so the chunks can be mapped concurrently
+			outFile.setLength(size);
+			FileChannel out = outFile.getChannel();
+
+			List<ForkJoinTask<?>> tasks = new ArrayList<>();
+			long start = 0;
+			while (start < size) {
+				long end = nextCharacterBoundary(in, Math.min(start + this.chunkSize, size), size);
+				long chunkStart = start;
+				tasks.add(this.pool.submit(() -> invertChunk(in, out, size, chunkStart, end)));
+				start = end;
+			}
+
+			for (ForkJoinTask<?> task : tasks) {
+				task.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Inverting " + input + " was interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			}
+			throw new IOException("Failed to invert " + input, e.getCause());
+		}
+	}
+
+	/**
+	 * Moves the given position forward until it does not point into the middle
+	 * of a UTF-8 multi-byte sequence.
+	 */
+	private static long nextCharacterBoundary(FileChannel in, long position, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(1);
+		while (position < size) {
+			buffer.clear();
+			in.read(buffer, position);
+			if (!isContinuationByte(buffer.get(0))) {
+				break;
+			}
+			position++;
+		}
+		return position;
+	}
+
+	/**
+	 * Inverts the input region [start, end) into the mirrored output region.
+	 * Every UTF-8 sequence is copied as a whole, so multi-byte characters and
+	 * supplementary code points stay intact, like with
+	 * {@link StringBuilder#reverse()}.
+	 */
+	private static void invertChunk(FileChannel in, FileChannel out, long size, long start, long end) {
+		try {
+			int length = (int) (end - start);
+			MappedByteBuffer source = in.map(MapMode.READ_ONLY, start, length);
+			MappedByteBuffer target = out.map(MapMode.READ_WRITE, size - end, length);
+
+			int i = 0;
+			while (i < length) {
+				int sequenceLength = Math.min(sequenceLength(source.get(i)), length - i);
+				int targetIndex = length - i - sequenceLength;
+				for (int k = 0; k < sequenceLength; k++) {
+					target.put(targetIndex + k, source.get(i + k));
+				}
+				i += sequenceLength;
+			}
+			target.force();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static boolean isContinuationByte(byte b) {
+		return (b & 0xC0) == 0x80;
+	}
+
+	private static int sequenceLength(byte lead) {
+		if ((lead & 0x80) == 0) {
+			return 1;
+		} else if ((lead & 0xE0) == 0xC0) {
+			return 2;
+		} else if ((lead & 0xF0) == 0xE0) {
+			return 3;
+		} else if ((lead & 0xF8) == 0xF0) {
+			return 4;
+		}
+		// malformed input is inverted byte by byte
+		return 1;
+	}
+}
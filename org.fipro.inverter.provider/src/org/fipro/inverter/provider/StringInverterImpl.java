@@ -1,5 +1,9 @@
 package org.fipro.inverter.provider;
 
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Objects;
+
 import org.fipro.inverter.StringInverter;
 import org.osgi.service.component.annotations.Component;
 
@@ -11,4 +15,61 @@ public class StringInverterImpl implements StringInverter {
 		return new StringBuilder(input).reverse().toString();
 	}
 
+	@Override
+	public void invert(CharSequence input, Appendable output) throws IOException {
+		for (int i = input.length() - 1; i >= 0; i--) {
+			char c = input.charAt(i);
+			if (Character.isLowSurrogate(c) && i > 0 && Character.isHighSurrogate(input.charAt(i - 1))) {
+				// keep surrogate pairs in their original order
+				output.append(input.charAt(--i));
+			}
+			output.append(c);
+		}
+	}
+
+	@Override
+	public void invert(CharSequence input, CharBuffer output) {
+		for (int i = input.length() - 1; i >= 0; i--) {
+			char c = input.charAt(i);
+			if (Character.isLowSurrogate(c) && i > 0 && Character.isHighSurrogate(input.charAt(i - 1))) {
+				// keep surrogate pairs in their original order
+				output.put(input.charAt(--i));
+			}
+			output.put(c);
+		}
+	}
+
+	@Override
+	public void invert(char[] chars, int offset, int length) {
+		Objects.checkFromIndexSize(offset, length, chars.length);
+		boolean hasSurrogates = false;
+		for (int i = offset, j = offset + length - 1; i < j; i++, j--) {
+			char front = chars[i];
+			char back = chars[j];
+			hasSurrogates |= Character.isSurrogate(front) || Character.isSurrogate(back);
+			chars[i] = back;
+			chars[j] = front;
+		}
+		if (hasSurrogates) {
+			restoreSurrogatePairs(chars, offset, length);
+		}
+	}
+
+	/**
+	 * Swaps back surrogate pairs that were turned around by a plain char
+	 * reversal, the same way {@link StringBuilder#reverse()} does.
+	 */
+	private static void restoreSurrogatePairs(char[] chars, int offset, int length) {
+		int end = offset + length - 1;
+		for (int i = offset; i < end; i++) {
+			char c1 = chars[i];
+			if (Character.isLowSurrogate(c1)) {
+				char c2 = chars[i + 1];
+				if (Character.isHighSurrogate(c2)) {
+					chars[i++] = c2;
+					chars[i] = c1;
+				}
+			}
+		}
+	}
 }